@@ -0,0 +1,88 @@
+package com.bkstore.fastapi.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Compares a JMH JSON result file against a stored baseline and exits non-zero on regressions.
+// A benchmark regresses when its average time grows by more than the tolerance AND the two
+// 99.9% confidence intervals reported by JMH no longer overlap, so run-to-run noise is not flagged.
+//
+// Usage: BenchmarkBaselineCheck <results.json> <baseline.json> [tolerancePercent] [update]
+// With update=true the current results replace the baseline. Scores only compare on the same machine, so the baseline
+// is machine-local and not committed; without one the comparison is skipped, with a message saying how to record it.
+public class BenchmarkBaselineCheck {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkBaselineCheck <results.json> <baseline.json> [tolerancePercent] [update]");
+            System.exit(2);
+        }
+        File results = new File(args[0]);
+        File baseline = new File(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100.0 : 0.10;
+        boolean update = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (update) {
+            if (baseline.getParentFile() != null) {
+                baseline.getParentFile().mkdirs();
+            }
+            Files.copy(results.toPath(), baseline.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Stored current results as JMH baseline: " + baseline.getAbsolutePath());
+            return;
+        }
+        if (!baseline.exists()) {
+            System.out.println("SKIPPED: no JMH baseline at " + baseline.getAbsolutePath() + ", nothing compared. Record one"
+                    + " on this machine with mvn -Pjmh verify -Djmh.baseline.update=true");
+            return;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baselineScores = new HashMap<>();
+        for (JsonNode run : mapper.readTree(baseline)) {
+            baselineScores.put(run.get("benchmark").asText(), run.get("primaryMetric"));
+        }
+
+        int regressions = 0;
+        for (JsonNode run : mapper.readTree(results)) {
+            String name = run.get("benchmark").asText();
+            JsonNode current = run.get("primaryMetric");
+            JsonNode previous = baselineScores.get(name);
+            if (previous == null) {
+                System.out.println("NEW        " + name + " " + format(current));
+                continue;
+            }
+            double currentScore = current.get("score").asDouble();
+            double previousScore = previous.get("score").asDouble();
+            double change = (currentScore - previousScore) / previousScore;
+            // All benchmarks run in AverageTime mode, so a higher score is slower
+            boolean intervalsSeparate = currentScore - error(current) > previousScore + error(previous);
+            boolean regressed = change > tolerance && intervalsSeparate;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-10s %s %s (baseline %s, %+.1f%%)",
+                    regressed ? "REGRESSED" : "OK", name, format(current), format(previous), change * 100));
+        }
+
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed by more than " + (tolerance * 100) + "% against " + baseline.getPath());
+            System.exit(1);
+        }
+    }
+
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String format(JsonNode metric) {
+        return String.format("%.2f +/- %.2f %s", metric.get("score").asDouble(), error(metric), metric.get("scoreUnit").asText());
+    }
+}
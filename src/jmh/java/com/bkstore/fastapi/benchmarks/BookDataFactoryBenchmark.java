@@ -0,0 +1,43 @@
+package com.bkstore.fastapi.benchmarks;
+
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.utilities.BookDataFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Cost of generating one Book payload with BookDataFactory, single-threaded and from 4 threads at once,
+// next to the UUID.randomUUID() name generation BookTests uses (one SecureRandom shared by all threads).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookDataFactoryBenchmark {
+
+    private final BookDataFactory factory = new BookDataFactory(20240601);
+    // Per thread, so the benchmark itself adds no shared state
+    private long nextIndex;
+
+    @Benchmark
+    public Book generateBook() {
+        return factory.book(nextIndex++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Book generateBookFourThreads() {
+        return factory.book(nextIndex++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String randomUuidNameFourThreads() {
+        return "Test Book " + UUID.randomUUID().toString().substring(0, 6);
+    }
+}
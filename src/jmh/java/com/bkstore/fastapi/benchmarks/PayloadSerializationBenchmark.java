@@ -0,0 +1,90 @@
+package com.bkstore.fastapi.benchmarks;
+
+import com.bkstore.fastapi.api.payloads.AuthToken;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.UserSignup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Jackson cost of the payloads the services send and receive: a long-lived default ObjectMapper, RestAssured's
+// default object mapping (a new ObjectMapper per body) and PayloadCodec, which the services use.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PayloadSerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private Book book;
+    private UserSignup userSignup;
+    private UserLogin userLogin;
+    private byte[] authTokenJson;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        book = new Book(42, "Benchmark Book", "bench@example.com", 2020, "Summary of the benchmark book used to measure serialization");
+        userSignup = new UserSignup(4242, "bench@example.com", "BenchPassword123!");
+        userLogin = new UserLogin(4242, "bench@example.com", "BenchPassword123!");
+        authTokenJson = ("{\"access_token\":\"eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJzdWIiOiJiZW5jaEBleGFtcGxlLmNvbSIsImV4cCI6NDEwMjQ0NDgwMH0.signature\","
+                + "\"token_type\":\"bearer\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws IOException {
+        return mapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeUserSignup() throws IOException {
+        return mapper.writeValueAsBytes(userSignup);
+    }
+
+    @Benchmark
+    public byte[] serializeUserLogin() throws IOException {
+        return mapper.writeValueAsBytes(userLogin);
+    }
+
+    @Benchmark
+    public AuthToken deserializeAuthToken() throws IOException {
+        return mapper.readValue(authTokenJson, AuthToken.class);
+    }
+
+    // What RestAssured's default Jackson2ObjectMapperFactory does for every object body: a new mapper per call
+    @Benchmark
+    public byte[] serializeBookRestAssuredDefault() throws IOException {
+        return new ObjectMapper().findAndRegisterModules().writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public AuthToken deserializeAuthTokenRestAssuredDefault() throws IOException {
+        return new ObjectMapper().findAndRegisterModules().readValue(authTokenJson, AuthToken.class);
+    }
+
+    // The services' path: shared mapper, writer/reader resolved once per payload class
+    @Benchmark
+    public byte[] serializeBookCodec() {
+        return PayloadCodec.toJson(book);
+    }
+
+    @Benchmark
+    public byte[] serializeUserSignupCodec() {
+        return PayloadCodec.toJson(userSignup);
+    }
+
+    @Benchmark
+    public AuthToken deserializeAuthTokenCodec() {
+        return PayloadCodec.fromJson(authTokenJson, AuthToken.class);
+    }
+}
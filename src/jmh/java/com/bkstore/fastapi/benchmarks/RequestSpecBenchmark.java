@@ -0,0 +1,99 @@
+package com.bkstore.fastapi.benchmarks;
+
+import com.bkstore.fastapi.api.auth.AuthSpecCache;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseSpecBuilder;
+import io.restassured.filter.log.LogDetail;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+
+// Client-side cost of building RestAssured specifications, measured without any network I/O.
+// Mirrors BaseTest.setup(), the given().spec(...).header("Authorization", ...) chain BookService used to build,
+// and the AuthSpecCache chain it builds now.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestSpecBenchmark {
+
+    private static final String BASE_URI = "http://127.0.0.1:8000";
+
+    private RequestSpecification requestSpec;
+    private String authToken;
+    private Book book;
+
+    @Setup
+    public void setup() {
+        requestSpec = buildRequestSpec();
+        authToken = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJzdWIiOiJiZW5jaEBleGFtcGxlLmNvbSIsImV4cCI6NDEwMjQ0NDgwMH0.signature";
+        book = new Book(1, "Benchmark Book", "bench@example.com", 2020, "Summary of the benchmark book");
+    }
+
+    // Same builder chain as BaseTest.setup()
+    @Benchmark
+    public RequestSpecification buildRequestSpec() {
+        return new RequestSpecBuilder()
+                .setBaseUri(BASE_URI)
+                .setContentType(ContentType.JSON)
+                .log(LogDetail.ALL)
+                .build();
+    }
+
+    @Benchmark
+    public ResponseSpecification buildResponseSpec() {
+        return new ResponseSpecBuilder()
+                .expectStatusCode(200)
+                .expectContentType(ContentType.JSON)
+                .log(LogDetail.ALL)
+                .build();
+    }
+
+    // BookService.getBook up to (but excluding) sending the request
+    @Benchmark
+    public RequestSpecification authenticatedGetChain() {
+        return given()
+                .spec(requestSpec)
+                .header("Authorization", "Bearer " + authToken)
+                .pathParam("id", 1);
+    }
+
+    // BookService.updateBook up to (but excluding) sending the request
+    @Benchmark
+    public RequestSpecification authenticatedBodyChain() {
+        return given()
+                .spec(requestSpec)
+                .header("Authorization", "Bearer " + authToken)
+                .pathParam("id", 1)
+                .body(book);
+    }
+
+    // BookService.getBook as it is now: the authenticated spec comes from AuthSpecCache
+    @Benchmark
+    public RequestSpecification cachedAuthGetChain() {
+        return given()
+                .spec(AuthSpecCache.authenticated(requestSpec, authToken))
+                .pathParam("id", 1);
+    }
+
+    // BookService.updateBook as it is now: cached authenticated spec and a pre-serialized body
+    @Benchmark
+    public RequestSpecification cachedAuthBodyChain() {
+        return given()
+                .spec(AuthSpecCache.authenticated(requestSpec, authToken))
+                .pathParam("id", 1)
+                .body(PayloadCodec.toJson(book));
+    }
+}
@@ -0,0 +1,62 @@
+package com.bkstore.fastapi.api.auth;
+
+import com.bkstore.fastapi.api.payloads.UserLogin;
+
+// A signed-up test user together with the access token obtained for it and when that token expires
+public class AuthSession {
+
+    private final Integer userId;
+    private final String email;
+    private final String password;
+    private final String accessToken;
+    private final String tokenType;
+    private final long expiresAtEpochSeconds;
+
+    public AuthSession(Integer userId, String email, String password, String accessToken, String tokenType, long expiresAtEpochSeconds) {
+        this.userId = userId;
+        this.email = email;
+        this.password = password;
+        this.accessToken = accessToken;
+        this.tokenType = tokenType;
+        this.expiresAtEpochSeconds = expiresAtEpochSeconds;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public long getExpiresAtEpochSeconds() {
+        return expiresAtEpochSeconds;
+    }
+
+    // True while the token is still valid for at least refreshSkewSeconds
+    public boolean isUsable(long nowEpochSeconds, long refreshSkewSeconds) {
+        return accessToken != null && expiresAtEpochSeconds - refreshSkewSeconds > nowEpochSeconds;
+    }
+
+    // False for sessions restored from the token cache, which does not store passwords
+    public boolean canLogin() {
+        return password != null;
+    }
+
+    // Login payload for this user, e.g. to exercise /login again
+    public UserLogin toLogin() {
+        return new UserLogin(userId, email, password);
+    }
+}
@@ -0,0 +1,71 @@
+package com.bkstore.fastapi.api.auth;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.specification.RequestSpecification;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Authenticated variants of a base RequestSpecification, built once per (base spec, token) and shared by every
+// request with that token. Replaces given().spec(reqSpec).header("Authorization", "Bearer " + token), which
+// concatenated the header value and merged one more header into every request specification.
+// The cached specs are never modified after they are built, so they can be used from any thread.
+public final class AuthSpecCache {
+
+    // Tokens expire and get replaced; past this many entries the cache starts over rather than tracking age
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final Map<Key, RequestSpecification> specs = new ConcurrentHashMap<>();
+
+    private AuthSpecCache() {
+    }
+
+    public static RequestSpecification authenticated(RequestSpecification base, String authToken) {
+        Key key = new Key(base, authToken);
+        RequestSpecification spec = specs.get(key);
+        if (spec == null) {
+            if (specs.size() >= MAX_ENTRIES) {
+                specs.clear();
+            }
+            spec = specs.computeIfAbsent(key, k -> new RequestSpecBuilder()
+                    .addRequestSpecification(base)
+                    .addHeader("Authorization", "Bearer " + authToken)
+                    .build());
+        }
+        return spec;
+    }
+
+    // Drops every cached spec, e.g. after the base specification was rebuilt
+    public static void clear() {
+        specs.clear();
+    }
+
+    // The base spec is compared by identity: specs are mutable builders underneath and have no value equality
+    private static final class Key {
+
+        private final RequestSpecification base;
+        private final String authToken;
+        private final int hash;
+
+        private Key(RequestSpecification base, String authToken) {
+            this.base = base;
+            this.authToken = authToken;
+            this.hash = 31 * System.identityHashCode(base) + Objects.hashCode(authToken);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return base == key.base && Objects.equals(authToken, key.authToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.bkstore.fastapi.api.auth;
+
+import com.bkstore.fastapi.api.payloads.AuthToken;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.UserSignup;
+import com.bkstore.fastapi.api.services.AuthService;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.EnvironmentManager;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shares authenticated test users across test classes and threads.
+// A session is reused until shortly before its JWT "exp" claim, then the same user logs in again.
+// With auth.token.cache.persist=true sessions are also written to a per-environment file, so the
+// next JVM skips signup and login entirely while the token is still valid.
+public class TokenManager {
+
+    // Session shared by every test class that just needs "a logged in user"
+    public static final String DEFAULT_USER = "default";
+
+    private static final Logger logger = LogManager.getLogger(TokenManager.class);
+    private static final TokenManager INSTANCE = new TokenManager();
+
+    private final AuthService authService = new AuthService();
+    private final Map<String, AuthSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    // Every token handed out -> its user key, so data created with an expired token can still be cleaned up
+    private final Map<String, String> tokenOwners = new ConcurrentHashMap<>();
+
+    private final String environment = EnvironmentManager.getEnvironment();
+    private final long refreshSkewSeconds = ConfigReader.getIntProperty("auth.token.refresh.skew.seconds", 60);
+    private final long defaultTtlSeconds = ConfigReader.getIntProperty("auth.token.default.ttl.seconds", 900);
+    private final boolean persist = Boolean.parseBoolean(ConfigReader.getProperty("auth.token.cache.persist", "false"));
+    private final File cacheFile = new File(ConfigReader.getProperty("auth.token.cache.dir", ".cache"), "auth-tokens-" + environment + Shard.fileSuffix() + ".properties");
+
+    private TokenManager() {
+        if (persist) {
+            loadPersistedSessions();
+        }
+    }
+
+    public static TokenManager getInstance() {
+        return INSTANCE;
+    }
+
+    // Returns a session with a usable token for userKey, signing up and/or logging in only when needed
+    public AuthSession getSession(RequestSpecification reqSpec, String userKey) {
+        AuthSession session = sessions.get(userKey);
+        if (session != null && session.isUsable(now(), refreshSkewSeconds)) {
+            return session;
+        }
+        // One refresh per user at a time; other threads wait and then reuse the fresh session
+        synchronized (locks.computeIfAbsent(userKey, key -> new Object())) {
+            session = sessions.get(userKey);
+            if (session != null && session.isUsable(now(), refreshSkewSeconds)) {
+                return session;
+            }
+            AuthSession refreshed = null;
+            if (session != null && session.canLogin()) {
+                refreshed = login(reqSpec, session.getUserId(), session.getEmail(), session.getPassword());
+            } else if (session != null) {
+                logger.info("Cached token of shared user '" + userKey + "' expired; the token cache keeps no password, so a new user is signed up.");
+            }
+            if (refreshed == null) {
+                refreshed = signupAndLogin(reqSpec, userKey);
+            }
+            sessions.put(userKey, refreshed);
+            tokenOwners.put(refreshed.getAccessToken(), userKey);
+            if (persist) {
+                savePersistedSessions();
+            }
+            return refreshed;
+        }
+    }
+
+    // For callers that also log in as the user (load, soak and warm-up runs time POST /login): a session whose
+    // credentials the server accepts right now. A session restored from the token cache has no password, and a cached
+    // user can outlive the server's data (e.g. a restarted stub server); either way one new user is signed up.
+    public AuthSession getLoginSession(RequestSpecification reqSpec, String userKey) {
+        AuthSession session = getSession(reqSpec, userKey);
+        if (!session.canLogin()) {
+            logger.info("Shared user '" + userKey + "' was restored from the token cache without a password, signing up a user that can log in.");
+        } else if (authService.loginUser(reqSpec, session.toLogin()).statusCode() != 200) {
+            logger.warn("Shared user '" + userKey + "' (" + session.getEmail() + ") can no longer log in, signing up a new one.");
+        } else {
+            return session;
+        }
+        invalidate(userKey);
+        return getSession(reqSpec, userKey);
+    }
+
+    public String getToken(RequestSpecification reqSpec, String userKey) {
+        return getSession(reqSpec, userKey).getAccessToken();
+    }
+
+    // A usable token of the user the given token was issued to, renewed when needed (e.g. a token that expired during
+    // a long run); tokens this manager did not hand out are returned as they are
+    public String currentToken(RequestSpecification reqSpec, String token) {
+        String userKey = tokenOwners.get(token);
+        return userKey == null ? token : getToken(reqSpec, userKey);
+    }
+
+    // Drops a session the server rejected (e.g. 401 after a server-side secret rotation)
+    public void invalidate(String userKey) {
+        AuthSession removed = sessions.remove(userKey);
+        if (removed != null && persist) {
+            savePersistedSessions();
+        }
+    }
+
+    private AuthSession signupAndLogin(RequestSpecification reqSpec, String userKey) {
+        Integer userId = Shard.userId();
+        String email = Shard.uniqueEmail("token_" + userKey);
+        String password = "TokenUserPassword123!";
+
+        Response signupResponse = authService.signupUser(reqSpec, new UserSignup(userId, email, password));
+        if (signupResponse.statusCode() != 200) {
+            throw new IllegalStateException("Signup for shared user '" + userKey + "' failed with status " + signupResponse.statusCode() + ": " + signupResponse.asString());
+        }
+        logger.info("Signed up shared test user '" + userKey + "': " + email);
+
+        AuthSession session = login(reqSpec, userId, email, password);
+        if (session == null) {
+            throw new IllegalStateException("Login for newly signed up user '" + userKey + "' failed");
+        }
+        return session;
+    }
+
+    // Returns null when the login is rejected, e.g. because the user no longer exists on the server
+    private AuthSession login(RequestSpecification reqSpec, Integer userId, String email, String password) {
+        Response loginResponse = authService.loginUser(reqSpec, new UserLogin(userId, email, password));
+        if (loginResponse.statusCode() != 200) {
+            logger.warn("Login for " + email + " failed with status " + loginResponse.statusCode() + ", a new user will be signed up.");
+            return null;
+        }
+        AuthToken token = PayloadCodec.read(loginResponse, AuthToken.class);
+        if (token.getAccessToken() == null || token.getAccessToken().isEmpty()) {
+            throw new IllegalStateException("Login for " + email + " returned no access token");
+        }
+        long expiresAt = decodeExpiry(token.getAccessToken());
+        logger.info("Obtained access token for " + email + ", valid for " + (expiresAt - now()) + "s.");
+        return new AuthSession(userId, email, password, token.getAccessToken(), token.getTokenType(), expiresAt);
+    }
+
+    // Reads the "exp" claim from the JWT payload; the signature is the server's business, not ours
+    private long decodeExpiry(String accessToken) {
+        String[] parts = accessToken.split("\\.");
+        if (parts.length >= 2) {
+            try {
+                JsonNode exp = PayloadCodec.reader(JsonNode.class).<JsonNode>readValue(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+                if (exp != null && exp.canConvertToLong()) {
+                    return exp.asLong();
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Access token is not a decodable JWT, assuming a lifetime of " + defaultTtlSeconds + "s.");
+            }
+        }
+        return now() + defaultTtlSeconds;
+    }
+
+    // --- persistence: one properties file per environment, <userKey>.<field> = value ---
+    // Only the token is stored, never the password: a restored session is used until its token expires and is then
+    // replaced by a newly signed up user
+
+    private void loadPersistedSessions() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(cacheFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warn("Could not read token cache " + cacheFile + ": " + e.getMessage());
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.endsWith(".email")) {
+                continue;
+            }
+            String userKey = name.substring(0, name.length() - ".email".length());
+            try {
+                AuthSession session = new AuthSession(
+                        Integer.valueOf(properties.getProperty(userKey + ".id")),
+                        properties.getProperty(userKey + ".email"),
+                        null,
+                        properties.getProperty(userKey + ".token"),
+                        properties.getProperty(userKey + ".tokenType"),
+                        Long.parseLong(properties.getProperty(userKey + ".expiresAt")));
+                sessions.put(userKey, session);
+                tokenOwners.put(session.getAccessToken(), userKey);
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring malformed token cache entry '" + userKey + "': " + e.getMessage());
+            }
+        }
+        logger.info("Loaded " + sessions.size() + " cached auth session(s) from " + cacheFile);
+    }
+
+    private synchronized void savePersistedSessions() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, AuthSession> entry : sessions.entrySet()) {
+            AuthSession session = entry.getValue();
+            String userKey = entry.getKey();
+            properties.setProperty(userKey + ".id", String.valueOf(session.getUserId()));
+            properties.setProperty(userKey + ".email", session.getEmail());
+            properties.setProperty(userKey + ".token", session.getAccessToken());
+            properties.setProperty(userKey + ".tokenType", String.valueOf(session.getTokenType()));
+            properties.setProperty(userKey + ".expiresAt", String.valueOf(session.getExpiresAtEpochSeconds()));
+        }
+        try {
+            cacheFile.getAbsoluteFile().getParentFile().mkdirs();
+            // Write to a temp file first so a concurrent JVM never reads a half-written cache
+            File temp = new File(cacheFile.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Cached auth sessions for environment " + environment);
+            }
+            Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write token cache " + cacheFile + ": " + e.getMessage());
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,52 @@
+package com.bkstore.fastapi.api.endpoints;
+
+// Pairs each route template from Routes with its HTTP method.
+// GET_BOOKS and POST_BOOKS share the same path, so the method is needed to tell routes apart.
+public enum Endpoint {
+
+    HEALTH("GET", Routes.GET_HEALTH),
+    SIGNUP("POST", Routes.SIGNUP_USER),
+    LOGIN("POST", Routes.GET_LOGIN_TOKEN),
+    LIST_BOOKS("GET", Routes.GET_BOOKS),
+    CREATE_BOOK("POST", Routes.POST_BOOKS),
+    GET_BOOK("GET", Routes.GET_BOOK_BY_ID),
+    UPDATE_BOOK("PUT", Routes.UPDATE_BOOK_BY_ID),
+    DELETE_BOOK("DELETE", Routes.DELETE_BOOK_BY_ID);
+
+    private final String method;
+    private final String path;
+
+    Endpoint(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    // Route template, e.g. "/books/{id}"
+    public String getPath() {
+        return path;
+    }
+
+    // Suffix used for per-route keys in config-<env>.properties, e.g. "get_book"
+    public String configKey() {
+        return name().toLowerCase();
+    }
+
+    // Human readable label used in logs and reports, e.g. "GET /books/{id}"
+    public String label() {
+        return method + " " + path;
+    }
+
+    // Resolves a method + route template pair back to its endpoint, or null when it is not a known route
+    public static Endpoint of(String method, String path) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.method.equalsIgnoreCase(method) && endpoint.path.equals(path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.bkstore.fastapi.api.filters;
+
+import com.bkstore.fastapi.api.resilience.CircuitBreaker;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+// Passes every request through the shared CircuitBreaker: rejected at once while the circuit is open, otherwise sent
+// and its outcome reported. Runs before all other filters, so a rejected request is neither logged, timed nor recorded.
+public class CircuitBreakerFilter implements OrderedFilter {
+
+    private static final CircuitBreakerFilter INSTANCE = new CircuitBreakerFilter();
+
+    private CircuitBreakerFilter() {
+    }
+
+    public static CircuitBreakerFilter getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        CircuitBreaker breaker = CircuitBreaker.getInstance();
+        breaker.acquire();
+        Response response = null;
+        Throwable failure = null;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+            return response;
+        } catch (Throwable e) {
+            // RestAssured throws IOExceptions undeclared; precise rethrow keeps them as they are
+            failure = e;
+            throw e;
+        } finally {
+            // Always reports an outcome, also for Errors (e.g. an AssertionError from a response spec), so a
+            // half-open probe can never stay in flight
+            if (response != null) {
+                breaker.onResponse();
+            } else if (failure != null && CircuitBreaker.isConnectionFailure(failure)) {
+                breaker.onConnectionFailure(failure);
+            } else {
+                breaker.onInconclusive();
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return HIGHEST_PRECEDENCE;
+    }
+}
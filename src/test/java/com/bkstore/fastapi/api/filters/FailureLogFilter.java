@@ -0,0 +1,138 @@
+package com.bkstore.fastapi.api.filters;
+
+import com.bkstore.fastapi.utilities.ConfigReader;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the last http.log.buffer.size request/response exchanges of the current thread in memory.
+// Nothing is formatted or written while tests pass; ExtentReporterNG prints the buffer when a test fails.
+// Only references are kept, so the cost per request is a few object allocations instead of a full log write.
+public class FailureLogFilter implements Filter {
+
+    private static final FailureLogFilter INSTANCE = new FailureLogFilter();
+
+    private static final int CAPACITY = Math.max(1, ConfigReader.getIntProperty("http.log.buffer.size", 10));
+    private static final int MAX_BODY_CHARS = ConfigReader.getIntProperty("http.log.max.body.chars", 4000);
+
+    private static final ThreadLocal<ArrayDeque<Exchange>> BUFFER = ThreadLocal.withInitial(() -> new ArrayDeque<>(CAPACITY));
+
+    private FailureLogFilter() {
+    }
+
+    public static FailureLogFilter getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        Exchange exchange = new Exchange(requestSpec.getMethod(), requestSpec.getURI(), requestSpec.getHeaders(), requestSpec.getBody());
+        remember(exchange);
+        long start = System.nanoTime();
+        try {
+            Response response = ctx.next(requestSpec, responseSpec);
+            exchange.response = response;
+            return response;
+        } catch (RuntimeException e) {
+            exchange.failure = e;
+            throw e;
+        } finally {
+            exchange.elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    // Forgets everything the current thread captured, called before each test starts
+    public static void clear() {
+        BUFFER.get().clear();
+    }
+
+    // Formats and removes the exchanges captured on the current thread, oldest first; empty when there are none
+    public static String drain() {
+        ArrayDeque<Exchange> buffer = BUFFER.get();
+        List<Exchange> exchanges = new ArrayList<>(buffer);
+        buffer.clear();
+
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < exchanges.size(); i++) {
+            out.append("--- Exchange ").append(i + 1).append('/').append(exchanges.size()).append(" ---\n");
+            exchanges.get(i).appendTo(out);
+        }
+        return out.toString();
+    }
+
+    private static void remember(Exchange exchange) {
+        ArrayDeque<Exchange> buffer = BUFFER.get();
+        if (buffer.size() == CAPACITY) {
+            buffer.removeFirst();
+        }
+        buffer.addLast(exchange);
+    }
+
+    private static final class Exchange {
+        private final String method;
+        private final String uri;
+        private final Headers requestHeaders;
+        private final Object requestBody;
+        private Response response;
+        private RuntimeException failure;
+        private long elapsedNanos;
+
+        private Exchange(String method, String uri, Headers requestHeaders, Object requestBody) {
+            this.method = method;
+            this.uri = uri;
+            this.requestHeaders = requestHeaders;
+            this.requestBody = requestBody;
+        }
+
+        private void appendTo(StringBuilder out) {
+            out.append(method).append(' ').append(uri)
+                    .append(String.format(" (%.1f ms)", elapsedNanos / 1_000_000.0)).append('\n');
+            out.append("Request headers: ").append(headers(requestHeaders)).append('\n');
+            if (requestBody != null) {
+                out.append("Request body: ").append(truncate(bodyText(requestBody))).append('\n');
+            }
+            if (response != null) {
+                out.append("Response: ").append(response.getStatusLine()).append('\n');
+                out.append("Response headers: ").append(headers(response.getHeaders())).append('\n');
+                out.append("Response body: ").append(truncate(response.asString())).append('\n');
+            } else if (failure != null) {
+                out.append("Request failed: ").append(failure).append('\n');
+            } else {
+                out.append("No response received\n");
+            }
+        }
+
+        private static String headers(Headers headers) {
+            StringBuilder out = new StringBuilder();
+            for (Header header : headers) {
+                if (out.length() > 0) {
+                    out.append(", ");
+                }
+                // Never write bearer tokens to logs or reports
+                String value = header.getName().equalsIgnoreCase("Authorization") ? "<masked>" : header.getValue();
+                out.append(header.getName()).append('=').append(value);
+            }
+            return out.toString();
+        }
+
+        private static String bodyText(Object body) {
+            return body instanceof byte[] ? new String((byte[]) body, StandardCharsets.UTF_8) : String.valueOf(body);
+        }
+
+        private static String truncate(String text) {
+            if (text == null || text.length() <= MAX_BODY_CHARS) {
+                return text;
+            }
+            return text.substring(0, MAX_BODY_CHARS) + "... (" + (text.length() - MAX_BODY_CHARS) + " more characters)";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bkstore.fastapi.api.filters;
+
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.nio.charset.StandardCharsets;
+
+// Emits an HttpExchangeEvent for every call while a Flight Recorder recording with the event enabled is running
+// (see FlightRecorderListener); otherwise it only costs one isEnabled() check per call.
+// Runs after all other filters, like ResponseTimingFilter, so the event's duration is the time on the wire.
+// Response sizes come from Content-Length: streamed responses (HttpConnectionPool.unbuffered) must not be read here.
+public class FlightRecorderFilter implements OrderedFilter {
+
+    private static final FlightRecorderFilter INSTANCE = new FlightRecorderFilter();
+
+    private FlightRecorderFilter() {
+    }
+
+    public static FlightRecorderFilter getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        HttpExchangeEvent event = new HttpExchangeEvent();
+        if (!event.isEnabled()) {
+            return ctx.next(requestSpec, responseSpec);
+        }
+        event.begin();
+        Response response = null;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+            return response;
+        } catch (Exception e) {
+            // Also catches connection failures, which RestAssured rethrows undeclared (e.g. ConnectException)
+            event.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.route = ResponseTimingFilter.endpointLabel(requestSpec);
+                event.path = requestSpec.getDerivedPath();
+                event.status = response == null ? -1 : response.getStatusCode();
+                event.requestBytes = requestBytes(requestSpec.getBody());
+                event.responseBytes = response == null ? -1 : contentLength(response.getHeader("Content-Length"));
+                event.testMethod = ResponseTimingFilter.currentTestName();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    private static long requestBytes(Object body) {
+        if (body == null) {
+            return 0;
+        }
+        if (body instanceof byte[]) {
+            return ((byte[]) body).length;
+        }
+        if (body instanceof String) {
+            return ((String) body).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return -1;
+    }
+
+    private static long contentLength(String header) {
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.bkstore.fastapi.api.filters;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for one API call, emitted by FlightRecorderFilter. The event's duration is the call's latency,
+// so a recording lines up every call with the GC pauses, thread states and allocations around it.
+@Name(HttpExchangeEvent.NAME)
+@Label("HTTP Exchange")
+@Category({"Bookstore", "HTTP"})
+@Description("One request/response exchange with the Bookstore API")
+@StackTrace(false)
+public class HttpExchangeEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.bkstore.fastapi.HttpExchange";
+
+    @Label("Route")
+    @Description("Method and route template, e.g. GET /books/{id}")
+    String route;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    @Description("HTTP status code, -1 when no response was received")
+    int status;
+
+    @Label("Request Bytes")
+    @Description("Request body size, -1 when unknown")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @Description("Content-Length of the response, -1 when unknown")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Test Method")
+    String testMethod;
+
+    @Label("Error")
+    @Description("Exception thrown by the call, if any")
+    String error;
+}
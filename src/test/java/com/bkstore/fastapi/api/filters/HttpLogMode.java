@@ -0,0 +1,39 @@
+package com.bkstore.fastapi.api.filters;
+
+import com.bkstore.fastapi.utilities.ConfigReader;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseSpecBuilder;
+import io.restassured.filter.log.LogDetail;
+
+// How much HTTP traffic is logged (http.log.mode):
+//   ALL        - every request and response is written to the console and logs/automation.log
+//   ON_FAILURE - the last exchanges are kept in memory and only written when a test fails (default)
+//   OFF        - nothing is captured
+public enum HttpLogMode {
+    ALL, ON_FAILURE, OFF;
+
+    public static HttpLogMode fromConfig() {
+        String mode = ConfigReader.getProperty("http.log.mode", "on_failure");
+        try {
+            return valueOf(mode.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported http.log.mode: " + mode + " (expected all, on_failure or off)");
+        }
+    }
+
+    public RequestSpecBuilder apply(RequestSpecBuilder builder) {
+        switch (this) {
+            case ALL:
+                return builder.log(LogDetail.ALL);
+            case ON_FAILURE:
+                return builder.addFilter(FailureLogFilter.getInstance());
+            default:
+                return builder;
+        }
+    }
+
+    public ResponseSpecBuilder apply(ResponseSpecBuilder builder) {
+        // In ON_FAILURE mode the request filter already holds the response
+        return this == ALL ? builder.log(LogDetail.ALL) : builder;
+    }
+}
@@ -0,0 +1,75 @@
+package com.bkstore.fastapi.api.filters;
+
+import com.bkstore.fastapi.perf.LatencyBudgets;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Checks every call made through the shared request spec against its single-call budget (latency.budget.<route>.max.ms)
+// and remembers breaches on the current thread; LatencyBudgetListener fails or warns the test that made them.
+// With latency.budget.percentile.scope=test it also keeps the current test's latencies per endpoint.
+// Calls are not aborted, so cleanup and setup code is never cut short by a slow response.
+public class LatencyBudgetFilter implements OrderedFilter {
+
+    private static final LatencyBudgetFilter INSTANCE = new LatencyBudgetFilter();
+
+    private static final ThreadLocal<List<String>> BREACHES = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<Map<String, Histogram>> TEST_LATENCIES = ThreadLocal.withInitial(HashMap::new);
+
+    private LatencyBudgetFilter() {
+    }
+
+    public static LatencyBudgetFilter getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long start = System.nanoTime();
+        Response response = ctx.next(requestSpec, responseSpec);
+        long duration = System.nanoTime() - start;
+
+        LatencyBudgets budgets = LatencyBudgets.getInstance();
+        String endpoint = ResponseTimingFilter.endpointLabel(requestSpec);
+        long maxNanos = budgets.maxNanos(endpoint);
+        if (maxNanos > 0 && duration > maxNanos) {
+            BREACHES.get().add(String.format("%s %s took %.2fms, budget %.0fms", endpoint, requestSpec.getURI(),
+                    duration / 1_000_000.0, maxNanos / 1_000_000.0));
+        }
+        if (budgets.getPercentileScope() == LatencyBudgets.Scope.TEST) {
+            TEST_LATENCIES.get().computeIfAbsent(endpoint, key -> new Histogram(3)).recordValue(duration);
+        }
+        return response;
+    }
+
+    // Just before ResponseTimingFilter (and FlightRecorderFilter), which run last: the measured time includes their
+    // recording overhead (microseconds, negligible against budgets in milliseconds) but no logging or traffic recording
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE - 1;
+    }
+
+    // Forgets everything the current thread recorded, called before each test method
+    public static void clear() {
+        BREACHES.get().clear();
+        TEST_LATENCIES.get().clear();
+    }
+
+    // Single-call breaches on the current thread since the last clear()
+    public static List<String> breaches() {
+        return new ArrayList<>(BREACHES.get());
+    }
+
+    // Endpoint label -> latencies of the current thread since the last clear() (only with percentile scope "test")
+    public static Map<String, Histogram> testLatencies() {
+        return new HashMap<>(TEST_LATENCIES.get());
+    }
+}
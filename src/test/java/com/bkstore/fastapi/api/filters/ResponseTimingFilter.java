@@ -0,0 +1,60 @@
+package com.bkstore.fastapi.api.filters;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.perf.EndpointMetrics;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+// Times every call and records it in EndpointMetrics under its route template and method
+// (e.g. "GET /books/{id}", not "/books/42"), together with the test that issued it.
+// Runs after all other filters so logging/recording overhead is not part of the measured time.
+public class ResponseTimingFilter implements OrderedFilter {
+
+    private static final ResponseTimingFilter INSTANCE = new ResponseTimingFilter();
+
+    private ResponseTimingFilter() {
+    }
+
+    public static ResponseTimingFilter getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long start = System.nanoTime();
+        Response response = null;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+            return response;
+        } finally {
+            long duration = System.nanoTime() - start;
+            EndpointMetrics.getInstance().record(endpointLabel(requestSpec), duration,
+                    response == null ? -1 : response.getStatusCode(), currentTestName());
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    // Route template and method of the call, e.g. "GET /books/{id}"
+    static String endpointLabel(FilterableRequestSpecification requestSpec) {
+        Endpoint endpoint = Endpoint.of(requestSpec.getMethod(), requestSpec.getUserDefinedPath());
+        return endpoint != null ? endpoint.label() : requestSpec.getMethod() + " " + requestSpec.getUserDefinedPath();
+    }
+
+    // Test (or configuration method) running on this thread, e.g. "BookTests.testGetBookById_Positive"
+    static String currentTestName() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (result == null) {
+            return Thread.currentThread().getName();
+        }
+        return result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+    }
+}
@@ -0,0 +1,168 @@
+package com.bkstore.fastapi.api.filters;
+
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import com.bkstore.fastapi.perf.TrafficLog;
+import com.bkstore.fastapi.perf.TrafficRecord;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Records every exchange that passes through the shared request spec to a binary TrafficLog,
+// so a suite run can later be replayed as a workload with TrafficReplayer.
+// Enabled with traffic.record.enabled=true; one file per JVM under traffic.record.dir.
+// Credentials never reach the file: Authorization headers, "password" fields and "access_token" fields are replaced
+// by placeholders, the same placeholder for the same value, so TrafficReplayer still links a login response to the
+// requests that used its token, and a replayed signup and login still agree on the password.
+public class TrafficRecorderFilter implements Filter {
+
+    private static final Logger logger = LogManager.getLogger(TrafficRecorderFilter.class);
+    private static final Pattern SECRET_FIELD = Pattern.compile("\"(password|access_token)\"(\\s*:\\s*)\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private static TrafficRecorderFilter instance;
+
+    private final TrafficLog.Writer writer;
+    private final File file;
+    private final long startNanos = System.nanoTime();
+    private final int maxResponseBytes;
+    // Secret value -> its placeholder; tokens and passwords each get their own numbering
+    private final Map<String, String> placeholders = new ConcurrentHashMap<>();
+    private final AtomicInteger placeholderCounter = new AtomicInteger();
+    private volatile boolean closed;
+
+    public TrafficRecorderFilter(File file, String baseUri, int maxResponseBytes) throws IOException {
+        this.file = file;
+        this.writer = new TrafficLog.Writer(file, baseUri);
+        this.maxResponseBytes = maxResponseBytes;
+        logger.info("Recording HTTP traffic to: " + file.getAbsolutePath());
+    }
+
+    public static synchronized TrafficRecorderFilter getInstance() {
+        if (instance == null) {
+            String timestamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
+            File file = new File(ConfigReader.getProperty("traffic.record.dir", "target/traffic"), "traffic-" + timestamp + ".bin");
+            try {
+                instance = new TrafficRecorderFilter(file, ConfigReader.getProperty("base.uri"),
+                        ConfigReader.getIntProperty("traffic.record.max.response.bytes", 65536));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not create traffic recording " + file + ": " + e.getMessage(), e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "traffic-recorder-close"));
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.getProperty("traffic.record.enabled", "false"));
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long start = System.nanoTime();
+        Response response = null;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+            return response;
+        } finally {
+            long duration = System.nanoTime() - start;
+            record(requestSpec, response, start - startNanos, duration);
+        }
+    }
+
+    // Flushes and closes the recording; later exchanges are no longer recorded
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.close();
+            logger.info("Traffic recording closed: " + file.getAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("Could not close traffic recording " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void record(FilterableRequestSpecification requestSpec, Response response, long offsetNanos, long durationNanos) {
+        if (closed) {
+            return;
+        }
+        Map<String, String> pathParams = new LinkedHashMap<>();
+        requestSpec.getNamedPathParams().forEach((name, value) -> pathParams.put(name, String.valueOf(value)));
+        List<String[]> headers = new ArrayList<>();
+        for (Header header : requestSpec.getHeaders()) {
+            headers.add(new String[]{header.getName(), redactHeader(header.getName(), header.getValue())});
+        }
+        Object body = requestSpec.getBody();
+        byte[] requestBody = body == null ? null
+                : redactBody(body instanceof byte[] ? (byte[]) body : String.valueOf(body).getBytes(StandardCharsets.UTF_8));
+        // Streamed responses (HttpConnectionPool.unbuffered) are recorded without a body: reading it here would buffer
+        // the whole response and defeat the streaming of getAllBooksStreaming and PagedBookReader
+        byte[] responseBody = response == null || HttpConnectionPool.isUnbuffered() ? null : response.asByteArray();
+        if (responseBody != null && responseBody.length > maxResponseBytes) {
+            responseBody = Arrays.copyOf(responseBody, maxResponseBytes);
+        }
+        responseBody = redactBody(responseBody);
+
+        TrafficRecord record = new TrafficRecord(offsetNanos, durationNanos, requestSpec.getMethod(), requestSpec.getUserDefinedPath(),
+                pathParams, headers, requestBody, response == null ? -1 : response.getStatusCode(), responseBody);
+        try {
+            writer.append(record);
+        } catch (IOException e) {
+            // Losing the recording must never fail the test that is being recorded
+            logger.warn("Could not record " + requestSpec.getMethod() + " " + requestSpec.getUserDefinedPath() + ": " + e.getMessage());
+        }
+    }
+
+    private String redactHeader(String name, String value) {
+        if (!name.equalsIgnoreCase("Authorization") || value == null) {
+            return value;
+        }
+        // Keep the scheme, TrafficReplayer looks for "Bearer <token>"
+        int space = value.indexOf(' ');
+        return space < 0 ? placeholder("token", value) : value.substring(0, space + 1) + placeholder("token", value.substring(space + 1));
+    }
+
+    private byte[] redactBody(byte[] body) {
+        if (body == null) {
+            return null;
+        }
+        String text = new String(body, StandardCharsets.UTF_8);
+        if (!text.contains("\"password\"") && !text.contains("\"access_token\"")) {
+            return body;
+        }
+        Matcher matcher = SECRET_FIELD.matcher(text);
+        StringBuffer redacted = new StringBuffer();
+        while (matcher.find()) {
+            String kind = matcher.group(1).equals("password") ? "password" : "token";
+            matcher.appendReplacement(redacted, Matcher.quoteReplacement(
+                    "\"" + matcher.group(1) + "\"" + matcher.group(2) + "\"" + placeholder(kind, matcher.group(3)) + "\""));
+        }
+        matcher.appendTail(redacted);
+        return redacted.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String placeholder(String kind, String secret) {
+        return placeholders.computeIfAbsent(kind + ":" + secret, key -> "redacted-" + kind + "-" + placeholderCounter.incrementAndGet());
+    }
+}
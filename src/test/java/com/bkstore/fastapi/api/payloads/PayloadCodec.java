@@ -0,0 +1,68 @@
+package com.bkstore.fastapi.api.payloads;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.restassured.config.ObjectMapperConfig;
+import io.restassured.response.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// JSON (de)serialization of the API payloads through one shared ObjectMapper, with the writer and reader of each
+// payload class resolved once and reused. RestAssured's default object mapping creates a new ObjectMapper (including
+// a classpath scan for modules) for every body it maps, so each request paid for Jackson's introspection again.
+// Services send toJson(payload) as a byte[] body; RestAssured passes byte[] bodies through untouched.
+public final class PayloadCodec {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // writerFor/readerFor look up the root serializer/deserializer eagerly, so each class is introspected only once
+    private static final ClassValue<ObjectWriter> writers = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return mapper.writerFor(type);
+        }
+    };
+    private static final ClassValue<ObjectReader> readers = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return mapper.readerFor(type);
+        }
+    };
+
+    private PayloadCodec() {
+    }
+
+    public static byte[] toJson(Object payload) {
+        try {
+            return writers.get(payload.getClass()).writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Could not serialize " + payload.getClass().getSimpleName(), e);
+        }
+    }
+
+    public static <T> T fromJson(byte[] json, Class<T> type) {
+        try {
+            return readers.get(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not deserialize " + type.getSimpleName(), e);
+        }
+    }
+
+    // Replaces response.as(type), which goes through RestAssured's per-call ObjectMapper
+    public static <T> T read(Response response, Class<T> type) {
+        return fromJson(response.asByteArray(), type);
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        return readers.get(type);
+    }
+
+    // For whatever still goes through RestAssured's object mapping (Response.as(), object bodies in tests):
+    // hands out the shared mapper instead of building a new one per call
+    public static ObjectMapperConfig objectMapperConfig() {
+        return ObjectMapperConfig.objectMapperConfig().jackson2ObjectMapperFactory((type, charset) -> mapper);
+    }
+}
@@ -0,0 +1,114 @@
+package com.bkstore.fastapi.api.resilience;
+
+import com.bkstore.fastapi.utilities.TestConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Stops a suite from waiting on a server that is clearly down. After failureThreshold consecutive connection failures
+// or timeouts the circuit opens: every request fails at once with CircuitOpenException and CircuitBreakerListener skips
+// the remaining tests. Once openDuration has passed a single request is let through as a probe; any response closes the
+// circuit again, another failure keeps it open for a further period. An HTTP error status still counts as a response,
+// the server is up and answering.
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final Logger logger = LogManager.getLogger(CircuitBreaker.class);
+
+    private static CircuitBreaker instance;
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private String lastFailure;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    // The breaker shared by every request on the suite's request specs (http.circuit.*)
+    public static synchronized CircuitBreaker getInstance() {
+        if (instance == null) {
+            TestConfig.CircuitBreaker config = TestConfig.get().getCircuitBreaker();
+            instance = new CircuitBreaker(config.getFailureThreshold(), config.getOpenDuration());
+        }
+        return instance;
+    }
+
+    // Connection refused/reset, connect or read timeout, pool timeout: the request got no HTTP response at all.
+    // RestAssured rethrows these undeclared, possibly wrapped, so the cause chain is searched.
+    public static boolean isConnectionFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Called before sending; throws while the circuit is open, or while the half-open probe is still running
+    public synchronized void acquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                throw new CircuitOpenException(describe());
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                throw new CircuitOpenException(describe());
+            }
+            probeInFlight = true;
+            logger.info("Circuit half-open, probing the server with one request.");
+        }
+    }
+
+    public synchronized void onResponse() {
+        if (state != State.CLOSED) {
+            logger.info("Server answered the probe request, circuit closed again.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onConnectionFailure(Throwable error) {
+        consecutiveFailures++;
+        lastFailure = String.valueOf(error);
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            probeInFlight = false;
+            logger.error("Circuit opened after " + consecutiveFailures + " consecutive connection failures, failing requests fast for "
+                    + Duration.ofNanos(openNanos).getSeconds() + "s. Last failure: " + lastFailure);
+        }
+    }
+
+    // The request ended without telling anything about the server (e.g. an error in a filter); frees the probe slot
+    public synchronized void onInconclusive() {
+        probeInFlight = false;
+    }
+
+    // True while requests are being rejected, i.e. open and not yet due for a probe
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openedAt < openNanos;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized String describe() {
+        return "Circuit " + state.name().toLowerCase().replace('_', '-') + " after " + consecutiveFailures
+                + " consecutive connection failures, last: " + lastFailure;
+    }
+}
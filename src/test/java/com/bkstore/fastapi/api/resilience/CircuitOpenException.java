@@ -0,0 +1,9 @@
+package com.bkstore.fastapi.api.resilience;
+
+// Thrown instead of sending a request while the circuit is open, see CircuitBreaker
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,90 @@
+package com.bkstore.fastapi.api.resilience;
+
+import com.bkstore.fastapi.utilities.TestConfig;
+import io.restassured.response.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Bounded retries for idempotent calls: after a connection failure, a timeout or a 502/503/504 the call is repeated
+// up to maxAttempts attempts in total. Before retry n it sleeps a random time between 0 and
+// min(maxBackoff, baseBackoff * 2^n) ("full jitter"), so parallel tests hitting the same struggling server spread
+// their retries out instead of arriving in waves. Only wrap calls that can safely be sent twice (GET, never POST).
+// A CircuitOpenException is never retried: the server is already known to be down.
+public final class RetryPolicy {
+
+    // Sends every call exactly once, e.g. for load generation where retries would hide errors
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+
+    private static final Logger logger = LogManager.getLogger(RetryPolicy.class);
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    private static RetryPolicy instance;
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public RetryPolicy(int maxAttempts, Duration baseBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    // The policy configured with http.retry.*
+    public static synchronized RetryPolicy getInstance() {
+        if (instance == null) {
+            TestConfig.Retry config = TestConfig.get().getRetry();
+            instance = new RetryPolicy(config.getMaxAttempts(), config.getBaseBackoff(), config.getMaxBackoff());
+        }
+        return instance;
+    }
+
+    // Runs call until it gets a non-retryable outcome or the attempts are used up; the last outcome is returned
+    // (or thrown). description names the call in the log, e.g. "GET /books/{id}".
+    public Response execute(String description, Supplier<Response> call) {
+        for (int attempt = 1; ; attempt++) {
+            Response response;
+            try {
+                response = call.get();
+            } catch (Exception e) {
+                // RestAssured throws IOExceptions undeclared; precise rethrow keeps them as they are
+                if (attempt >= maxAttempts || e instanceof CircuitOpenException || !CircuitBreaker.isConnectionFailure(e)) {
+                    throw e;
+                }
+                backOff(description, attempt, String.valueOf(e));
+                continue;
+            }
+            if (attempt >= maxAttempts || !RETRYABLE_STATUSES.contains(response.getStatusCode())) {
+                return response;
+            }
+            // Read the discarded body to the end, an unbuffered response would otherwise keep its connection leased
+            response.asByteArray();
+            backOff(description, attempt, "status " + response.getStatusCode());
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    private void backOff(String description, int attempt, String reason) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 30));
+        long sleepMillis = ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+        logger.warn(description + " failed (" + reason + "), attempt " + (attempt + 1) + " of " + maxAttempts
+                + " in " + sleepMillis + "ms");
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to retry " + description, e);
+        }
+    }
+}
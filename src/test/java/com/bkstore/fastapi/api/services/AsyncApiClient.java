@@ -0,0 +1,93 @@
+package com.bkstore.fastapi.api.services;
+
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Non-blocking counterpart of the shared RequestSpecification: one JDK HttpClient (HTTP/2 when the
+// server supports it, HTTP/1.1 keep-alive otherwise) that the async services send their requests through.
+// Many requests can be in flight at once while only a handful of threads are used.
+public class AsyncApiClient implements AutoCloseable {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final String baseUri;
+    private final Duration requestTimeout;
+
+    // Headers the JDK client sets itself and refuses to accept from callers
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    public AsyncApiClient(String baseUri) {
+        this(baseUri, HttpClient.Version.HTTP_2, Duration.ofSeconds(10), Duration.ofSeconds(30), 4);
+    }
+
+    public AsyncApiClient(String baseUri, HttpClient.Version version, Duration connectTimeout, Duration requestTimeout, int threads) {
+        this.baseUri = baseUri.endsWith("/") ? baseUri.substring(0, baseUri.length() - 1) : baseUri;
+        this.requestTimeout = requestTimeout;
+        AtomicInteger counter = new AtomicInteger();
+        // Only used for completing responses and running callbacks; no thread is blocked per request
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "async-api-client-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+    }
+
+    // Sends a request to a route template from Routes; "{id}" is replaced with pathId when given
+    public CompletableFuture<HttpResponse<String>> send(String method, String route, Integer pathId, Object body, String authToken) {
+        String path = pathId == null ? route : route.replace("{id}", String.valueOf(pathId));
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(PayloadCodec.toJson(body)));
+        if (authToken != null) {
+            request.header("Authorization", "Bearer " + authToken);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Sends an already resolved path with the given headers and serialized body, e.g. a recorded request being replayed
+    public CompletableFuture<HttpResponse<String>> send(String method, String path, List<String[]> headers, byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(requestTimeout)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String[] header : headers) {
+            if (!RESTRICTED_HEADERS.contains(header[0].toLowerCase())) {
+                request.header(header[0], header[1]);
+            }
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Deserializes a JSON response body, e.g. readBody(response, AuthToken.class)
+    public <T> T readBody(HttpResponse<String> response, Class<T> type) {
+        try {
+            return PayloadCodec.reader(type).readValue(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + type.getSimpleName() + " from response: " + response.body(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,20 @@
+package com.bkstore.fastapi.api.services;
+
+import com.bkstore.fastapi.api.endpoints.Routes;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.UserSignup;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking counterpart of AuthService
+public class AsyncAuthService {
+
+    public CompletableFuture<HttpResponse<String>> signupUser(AsyncApiClient client, UserSignup userSignupPayload) {
+        return client.send("POST", Routes.SIGNUP_USER, null, userSignupPayload, null);
+    }
+
+    public CompletableFuture<HttpResponse<String>> loginUser(AsyncApiClient client, UserLogin userLoginPayload) {
+        return client.send("POST", Routes.GET_LOGIN_TOKEN, null, userLoginPayload, null);
+    }
+}
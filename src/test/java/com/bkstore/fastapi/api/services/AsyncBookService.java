@@ -0,0 +1,43 @@
+package com.bkstore.fastapi.api.services;
+
+import com.bkstore.fastapi.api.endpoints.Routes;
+import com.bkstore.fastapi.api.payloads.Book;
+
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking counterpart of BookService: same operations, but each call returns immediately
+// with a CompletableFuture so many requests can be in flight from a few threads
+public class AsyncBookService {
+
+    public CompletableFuture<HttpResponse<String>> getAllBooks(AsyncApiClient client, String authToken) {
+        return client.send("GET", Routes.GET_BOOKS, null, null, authToken);
+    }
+
+    public CompletableFuture<HttpResponse<String>> createBook(AsyncApiClient client, Book bookPayload, String authToken) {
+        return client.send("POST", Routes.POST_BOOKS, null, bookPayload, authToken)
+                .thenApply(response -> {
+                    // Deleted at suite end unless a test deletes it first, see TestDataRegistry
+                    TestDataRegistry.getInstance().bookCreated(response.statusCode(),
+                            response.body().getBytes(StandardCharsets.UTF_8), authToken);
+                    return response;
+                });
+    }
+
+    public CompletableFuture<HttpResponse<String>> getBook(AsyncApiClient client, int bookId, String authToken) {
+        return client.send("GET", Routes.GET_BOOK_BY_ID, bookId, null, authToken);
+    }
+
+    public CompletableFuture<HttpResponse<String>> updateBook(AsyncApiClient client, int bookId, Book bookPayload, String authToken) {
+        return client.send("PUT", Routes.UPDATE_BOOK_BY_ID, bookId, bookPayload, authToken);
+    }
+
+    public CompletableFuture<HttpResponse<String>> deleteBook(AsyncApiClient client, int bookId, String authToken) {
+        return client.send("DELETE", Routes.DELETE_BOOK_BY_ID, bookId, null, authToken)
+                .thenApply(response -> {
+                    TestDataRegistry.getInstance().bookDeleted(bookId, response.statusCode());
+                    return response;
+                });
+    }
+}
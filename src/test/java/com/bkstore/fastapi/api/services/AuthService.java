@@ -5,23 +5,27 @@ import io.restassured.specification.RequestSpecification;
 import com.bkstore.fastapi.api.endpoints.Routes;
 import com.bkstore.fastapi.api.payloads.UserSignup;
 import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
 
 import static io.restassured.RestAssured.given;
 
 public class AuthService {
 
     public Response signupUser(RequestSpecification reqSpec, UserSignup userSignupPayload) {
-        return given()
+        Response response = given()
                 .spec(reqSpec)
-                .body(userSignupPayload)
+                .body(PayloadCodec.toJson(userSignupPayload))
             .when()
                 .post(Routes.SIGNUP_USER);
+        // Reported as a leftover at suite end, the API cannot delete users
+        TestDataRegistry.getInstance().userCreated(response.getStatusCode(), userSignupPayload.getEmail());
+        return response;
     }
 
     public Response loginUser(RequestSpecification reqSpec, UserLogin userLoginPayload) {
         return given()
                 .spec(reqSpec)
-                .body(userLoginPayload)
+                .body(PayloadCodec.toJson(userLoginPayload))
             .when()
                 .post(Routes.GET_LOGIN_TOKEN);
     }
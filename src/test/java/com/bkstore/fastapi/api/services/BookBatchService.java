@@ -0,0 +1,143 @@
+package com.bkstore.fastapi.api.services;
+
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.utilities.BookDataFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+// Creates and deletes books in bulk on top of BookService, with at most maxInFlight requests outstanding.
+// maxInFlight worker threads pull the next index from a shared counter, so the window stays bounded no matter
+// how many books are requested: no task or future is queued per book. Each created book still costs one int in the
+// returned ids and, through BookService.createBook, one TestDataRegistry entry (id -> shared token string) until
+// it is deleted, so a 100k-book catalog holds 100k registry entries while it exists.
+// Keep maxInFlight at or below http.pool.max.per.route, extra workers would only wait for a pooled connection.
+public class BookBatchService {
+
+    private static final Logger logger = LogManager.getLogger(BookBatchService.class);
+
+    private final BookService bookService = new BookService();
+
+    // Creates factory.book(firstIndex) .. factory.book(firstIndex + count - 1) and returns their ids in that order.
+    // If a request fails, no further books are started, the books already created are deleted and the failure is thrown.
+    public int[] createBooks(RequestSpecification reqSpec, String authToken, BookDataFactory factory, long firstIndex, int count, int maxInFlight) {
+        int[] ids = new int[count];
+        long start = System.nanoTime();
+        try {
+            runBounded("create", count, maxInFlight, i -> {
+                Response response = bookService.createBook(reqSpec, factory.book(firstIndex + i), authToken);
+                if (response.getStatusCode() != 200) {
+                    throw new RuntimeException("POST /books/ returned " + response.getStatusCode() + " for book " + (firstIndex + i) + ": " + response.asString());
+                }
+                ids[i] = readId(response);
+            });
+        } catch (RuntimeException e) {
+            int created = countCreated(ids);
+            logger.error("Batch creation failed after " + created + " of " + count + " books, deleting them: " + e.getMessage());
+            deleteBooks(reqSpec, authToken, ids, maxInFlight);
+            throw e;
+        }
+        logRate("Created", count, start);
+        return ids;
+    }
+
+    // Deletes every id in the array (0 entries are skipped); failures are logged, not thrown, so cleanup always finishes
+    public void deleteBooks(RequestSpecification reqSpec, String authToken, int[] ids, int maxInFlight) {
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        runBounded("delete", ids.length, maxInFlight, i -> {
+            if (ids[i] == 0) {
+                return;
+            }
+            try {
+                int status = bookService.deleteBook(reqSpec, ids[i], authToken).getStatusCode();
+                if (status != 200 && status != 404) {
+                    failed.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        });
+        if (failed.get() > 0) {
+            logger.warn("Could not delete " + failed.get() + " of " + ids.length + " books.");
+        }
+        logRate("Deleted", countCreated(ids), start);
+    }
+
+    // Runs task(0) .. task(count - 1) on maxInFlight workers; stops handing out indexes after the first failure
+    private static void runBounded(String name, int count, int maxInFlight, IntConsumer task) {
+        int workers = Math.max(1, Math.min(maxInFlight, count));
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "book-batch-" + name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int w = 0; w < workers; w++) {
+            executor.execute(() -> {
+                int i;
+                while (failure.get() == null && (i = next.getAndIncrement()) < count) {
+                    try {
+                        task.accept(i);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.info("Book batch " + name + ": " + Math.min(next.get(), count) + "/" + count + " started");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running book batch " + name, e);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    // Plain Jackson: response.path("id") evaluates a Groovy GPath expression per call, which dominates the client cost
+    private static int readId(Response response) {
+        try {
+            JsonNode id = PayloadCodec.reader(JsonNode.class).<JsonNode>readValue(response.asByteArray()).get("id");
+            if (id == null || !id.canConvertToInt()) {
+                throw new RuntimeException("POST /books/ response has no id: " + response.asString());
+            }
+            return id.intValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read POST /books/ response: " + response.asString(), e);
+        }
+    }
+
+    private static int countCreated(int[] ids) {
+        int created = 0;
+        for (int id : ids) {
+            if (id != 0) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    private static void logRate(String action, int count, long startNanos) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        logger.info(String.format("%s %d books in %.1fs (%.0f books/s)", action, count, seconds, count / seconds));
+    }
+}
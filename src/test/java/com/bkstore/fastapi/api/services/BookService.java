@@ -2,60 +2,102 @@ package com.bkstore.fastapi.api.services;
 
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
+import com.bkstore.fastapi.api.endpoints.Endpoint;
 import com.bkstore.fastapi.api.endpoints.Routes;
+import com.bkstore.fastapi.api.auth.AuthSpecCache;
 import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.api.resilience.RetryPolicy;
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import com.bkstore.fastapi.utilities.JsonStreams;
+
+import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.given;
 
 public class BookService {
 
+    private final RetryPolicy retryPolicy;
+
+    public BookService() {
+        this(RetryPolicy.getInstance());
+    }
+
+    // retryPolicy applies to the idempotent reads (getAllBooks, getBooksPage, getBook); RetryPolicy.NONE sends every
+    // call exactly once
+    public BookService(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     // Now accepts authToken parameter to be applied dynamically
     public Response getAllBooks(RequestSpecification reqSpec, String authToken) {
-        return given()
-                .spec(reqSpec)
-                .header("Authorization", "Bearer " + authToken) // Add auth header here
+        return retryPolicy.execute(Endpoint.LIST_BOOKS.label(), () -> given()
+                .spec(AuthSpecCache.authenticated(reqSpec, authToken)) // Auth header from the per-token spec cache
             .when()
-                .get(Routes.GET_BOOKS);
+                .get(Routes.GET_BOOKS));
+    }
+
+    // One page of GET /books/ with FastAPI's skip/limit query parameters, see PagedBookReader
+    public Response getBooksPage(RequestSpecification reqSpec, int skip, int limit, String authToken) {
+        return retryPolicy.execute(Endpoint.LIST_BOOKS.label(), () -> given()
+                .spec(AuthSpecCache.authenticated(reqSpec, authToken))
+                .queryParam("skip", skip)
+                .queryParam("limit", limit)
+            .when()
+                .get(Routes.GET_BOOKS));
+    }
+
+    // Same call as getAllBooks, but the body stays on the connection so books(response) can read it incrementally.
+    // Check status and headers on the Response directly (then() reads the whole body first), then read the books
+    // in a try-with-resources.
+    public Response getAllBooksStreaming(RequestSpecification reqSpec, String authToken) {
+        return HttpConnectionPool.unbuffered(() -> getAllBooks(reqSpec, authToken));
+    }
+
+    // The books of a GET /books/ response, parsed one at a time so a catalog of any size is read in constant memory
+    public static Stream<Book> books(Response response) {
+        return JsonStreams.arrayElements(response.asInputStream(), Book.class);
     }
 
     // Now accepts authToken parameter
     public Response createBook(RequestSpecification reqSpec, Book bookPayload, String authToken) {
-        return given()
-                .spec(reqSpec)
-                .header("Authorization", "Bearer " + authToken) // Add auth header here
-                .body(bookPayload)
+        Response response = given()
+                .spec(AuthSpecCache.authenticated(reqSpec, authToken)) // Auth header from the per-token spec cache
+                .body(PayloadCodec.toJson(bookPayload))
             .when()
                 .post(Routes.POST_BOOKS);
+        // Deleted at suite end unless a test deletes it first
+        TestDataRegistry.getInstance().bookCreated(response.getStatusCode(), response.asByteArray(), authToken);
+        return response;
     }
 
     // Now accepts authToken parameter
     public Response getBook(RequestSpecification reqSpec, int bookId, String authToken) {
-        return given()
-                .spec(reqSpec)
-                .header("Authorization", "Bearer " + authToken) // Add auth header here
+        return retryPolicy.execute(Endpoint.GET_BOOK.label(), () -> given()
+                .spec(AuthSpecCache.authenticated(reqSpec, authToken)) // Auth header from the per-token spec cache
                 .pathParam("id", bookId)
             .when()
-                .get(Routes.GET_BOOK_BY_ID);
+                .get(Routes.GET_BOOK_BY_ID));
     }
 
     // Now accepts authToken parameter
     public Response updateBook(RequestSpecification reqSpec, int bookId, Book bookPayload, String authToken) {
         return given()
-                .spec(reqSpec)
-                .header("Authorization", "Bearer " + authToken) // Add auth header here
+                .spec(AuthSpecCache.authenticated(reqSpec, authToken)) // Auth header from the per-token spec cache
                 .pathParam("id", bookId)
-                .body(bookPayload)
+                .body(PayloadCodec.toJson(bookPayload))
             .when()
                 .put(Routes.UPDATE_BOOK_BY_ID);
     }
 
     // Now accepts authToken parameter
     public Response deleteBook(RequestSpecification reqSpec, int bookId, String authToken) {
-        return given()
-                .spec(reqSpec)
-                .header("Authorization", "Bearer " + authToken) // Add auth header here
+        Response response = given()
+                .spec(AuthSpecCache.authenticated(reqSpec, authToken)) // Auth header from the per-token spec cache
                 .pathParam("id", bookId)
             .when()
                 .delete(Routes.DELETE_BOOK_BY_ID);
+        TestDataRegistry.getInstance().bookDeleted(bookId, response.getStatusCode());
+        return response;
     }
 }
\ No newline at end of file
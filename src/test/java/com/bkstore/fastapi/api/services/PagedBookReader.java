@@ -0,0 +1,237 @@
+package com.bkstore.fastapi.api.services;
+
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Walks GET /books/ page by page (skip/limit) instead of in one giant request, fetching the next pages in the
+// background while the current one is processed. stream() walks the catalog serially; parallelStream() splits the
+// page range so the pages are fetched and processed on several threads. Offset paging is not a snapshot: books
+// created or deleted during the walk can be missed or seen twice, so run consistency checks on a quiet catalog.
+public class PagedBookReader {
+
+    private static final Logger logger = LogManager.getLogger(PagedBookReader.class);
+
+    // Page fetches run here so they overlap with processing; threads only live while pages are being fetched
+    private static final AtomicInteger prefetchThreads = new AtomicInteger();
+    private static final ExecutorService prefetcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "book-page-prefetch-" + prefetchThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BookService bookService = new BookService();
+    private final RequestSpecification reqSpec;
+    private final String authToken;
+    private final int pageSize;
+    private final int prefetchPages;
+    private final AtomicInteger pagesFetched = new AtomicInteger();
+    private volatile Integer catalogSize;
+
+    // prefetchPages is how many pages each walker keeps requested ahead of the one being processed (0 = no prefetch)
+    public PagedBookReader(RequestSpecification reqSpec, String authToken, int pageSize, int prefetchPages) {
+        if (pageSize < 1 || prefetchPages < 0) {
+            throw new IllegalArgumentException("pageSize must be positive and prefetchPages non-negative");
+        }
+        this.reqSpec = reqSpec;
+        this.authToken = authToken;
+        this.pageSize = pageSize;
+        this.prefetchPages = prefetchPages;
+    }
+
+    public Stream<Book> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Book> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    // Covers the whole catalog. The end is not known up front: a serial walk stops at the first short page, and the
+    // first split looks up the catalog size (see size()) so the page range can be divided.
+    public Spliterator<Book> spliterator() {
+        return new PageSpliterator(0, Integer.MAX_VALUE);
+    }
+
+    // Number of books in the catalog, found with O(log n) one-book requests: the probe index doubles until it is
+    // past the end, then a binary search between the last hit and the first miss finds the exact end
+    public int size() {
+        Integer size = catalogSize;
+        if (size == null) {
+            synchronized (this) {
+                if (catalogSize == null) {
+                    catalogSize = findSize();
+                }
+                size = catalogSize;
+            }
+        }
+        return size;
+    }
+
+    public int getPagesFetched() {
+        return pagesFetched.get();
+    }
+
+    private int findSize() {
+        if (!exists(0)) {
+            return 0;
+        }
+        int lo = 0; // index known to exist
+        int hi = 1; // next index to probe, then the first index known to be missing
+        int probes = 1;
+        while (exists(hi)) {
+            probes++;
+            lo = hi;
+            if (hi > Integer.MAX_VALUE / 2) {
+                throw new IllegalStateException("GET /books/ still returns books at skip=" + hi + ", the API seems to ignore skip");
+            }
+            hi *= 2;
+        }
+        probes++;
+        while (hi - lo > 1) {
+            int mid = lo + (hi - lo) / 2;
+            probes++;
+            if (exists(mid)) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        logger.info("Catalog size " + hi + " found with " + probes + " probe requests.");
+        return hi;
+    }
+
+    private boolean exists(int index) {
+        return !fetch(index, 1).isEmpty();
+    }
+
+    private List<Book> fetchPage(int page) {
+        pagesFetched.incrementAndGet();
+        return fetch(page * pageSize, pageSize);
+    }
+
+    // Body read straight from the connection into Book objects, without the pool's buffered copy
+    private List<Book> fetch(int skip, int limit) {
+        Response response = HttpConnectionPool.unbuffered(() -> bookService.getBooksPage(reqSpec, skip, limit, authToken));
+        if (response.getStatusCode() != 200) {
+            throw new RuntimeException("GET /books/?skip=" + skip + "&limit=" + limit + " returned "
+                    + response.getStatusCode() + ": " + response.asString());
+        }
+        List<Book> books;
+        try (Stream<Book> stream = BookService.books(response)) {
+            books = stream.collect(Collectors.toList());
+        }
+        // An API without paging answers every page with the whole catalog, which would never end
+        if (books.size() > limit) {
+            throw new IllegalStateException("GET /books/?skip=" + skip + "&limit=" + limit + " returned " + books.size()
+                    + " books, the API does not support skip/limit paging");
+        }
+        return books;
+    }
+
+    // Pages [nextPage, endPage); pages are requested in order, up to prefetchPages ahead of the one being processed
+    private final class PageSpliterator implements Spliterator<Book> {
+
+        private int nextPage;
+        private int endPage;
+        private final Deque<CompletableFuture<List<Book>>> requested = new ArrayDeque<>();
+        private Iterator<Book> current = Collections.emptyIterator();
+        private boolean lastPageSeen;
+
+        private PageSpliterator(int firstPage, int endPage) {
+            this.nextPage = firstPage;
+            this.endPage = endPage;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Book> action) {
+            while (!current.hasNext()) {
+                if (lastPageSeen) {
+                    return false;
+                }
+                requestAhead();
+                if (requested.isEmpty()) {
+                    return false;
+                }
+                List<Book> page = join(requested.poll());
+                if (page.size() < pageSize) {
+                    // Short page: the catalog ends here, drop anything requested beyond it
+                    lastPageSeen = true;
+                    requested.forEach(future -> future.cancel(false));
+                    requested.clear();
+                } else {
+                    requestAhead();
+                }
+                current = page.iterator();
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        // Hands the upper half of the pages not yet requested to a new spliterator
+        @Override
+        public Spliterator<Book> trySplit() {
+            if (lastPageSeen) {
+                return null;
+            }
+            if (endPage == Integer.MAX_VALUE) {
+                endPage = Math.max(nextPage, (int) ((size() + (long) pageSize - 1) / pageSize));
+            }
+            int remaining = endPage - nextPage;
+            if (remaining < 2) {
+                return null;
+            }
+            int middle = nextPage + remaining / 2;
+            PageSpliterator upper = new PageSpliterator(middle, endPage);
+            endPage = middle;
+            return upper;
+        }
+
+        @Override
+        public long estimateSize() {
+            return endPage == Integer.MAX_VALUE ? Long.MAX_VALUE : (long) (endPage - nextPage + requested.size()) * pageSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        private void requestAhead() {
+            while (requested.size() <= prefetchPages && nextPage < endPage) {
+                int page = nextPage++;
+                requested.add(CompletableFuture.supplyAsync(() -> fetchPage(page), prefetcher));
+            }
+        }
+
+        private List<Book> join(CompletableFuture<List<Book>> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.bkstore.fastapi.api.services;
+
+import com.bkstore.fastapi.api.auth.TokenManager;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Every book and user created through BookService, AsyncBookService and AuthService during the run, so that whatever
+// the tests did not delete themselves (skipped chains, failed assertions, aborted classes) can be removed at suite end
+// instead of piling up in shared environments. Books leave the registry when a delete returns 200 or 404.
+// The API has no endpoint to delete users, so users are only counted and reported; only the first few emails are kept,
+// so a soak run signing up users for hours does not grow the registry (and the heap SoakMonitor watches).
+public final class TestDataRegistry {
+
+    private static final Logger logger = LogManager.getLogger(TestDataRegistry.class);
+    private static final TestDataRegistry INSTANCE = new TestDataRegistry();
+    // Leftovers listed in the log; the counts are always complete
+    private static final int MAX_LISTED = 20;
+
+    // Book id -> token it was created with; its owner's current token is allowed to delete it
+    private final Map<Integer, String> books = new ConcurrentHashMap<>();
+    // The first MAX_LISTED signups not yet reported, and how many there were in total
+    private final Set<String> users = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger userCount = new AtomicInteger();
+
+    private TestDataRegistry() {
+    }
+
+    public static TestDataRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    // Records the book in a POST /books/ response; a body without an id is logged, never thrown, so the caller's
+    // own assertions decide whether the response was acceptable
+    public void bookCreated(int statusCode, byte[] body, String authToken) {
+        if (statusCode != 200 && statusCode != 201) {
+            return;
+        }
+        try {
+            Integer id = PayloadCodec.fromJson(body, Book.class).getId();
+            if (id != null) {
+                books.put(id, authToken);
+                return;
+            }
+        } catch (RuntimeException e) {
+            // Reported below
+        }
+        logger.warn("Created book could not be registered for cleanup, the response has no id.");
+    }
+
+    public void bookDeleted(int bookId, int statusCode) {
+        if (statusCode == 200 || statusCode == 204 || statusCode == 404) {
+            books.remove(bookId);
+        }
+    }
+
+    public void userCreated(int statusCode, String email) {
+        if (statusCode == 200 && email != null && userCount.incrementAndGet() <= MAX_LISTED) {
+            users.add(email);
+        }
+    }
+
+    public int getBookCount() {
+        return books.size();
+    }
+
+    public int getUserCount() {
+        return userCount.get();
+    }
+
+    // Deletes every registered book with its owner's current token (TokenManager renews tokens that expired since the
+    // book was created), at most maxInFlight deletes outstanding (see BookBatchService), then logs what is left.
+    // Returns the number of books that could not be deleted.
+    public int cleanup(RequestSpecification reqSpec, int maxInFlight) {
+        Map<String, String> currentTokens = new HashMap<>();
+        Map<String, List<Integer>> booksByToken = new HashMap<>();
+        books.forEach((id, token) -> booksByToken.computeIfAbsent(
+                currentTokens.computeIfAbsent(token, t -> currentToken(reqSpec, t)),
+                t -> new ArrayList<>()).add(id));
+        int registered = books.size();
+        if (registered > 0) {
+            logger.info("Cleaning up " + registered + " books left behind by the tests.");
+            BookBatchService batchService = new BookBatchService();
+            for (Map.Entry<String, List<Integer>> entry : booksByToken.entrySet()) {
+                int[] ids = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                batchService.deleteBooks(reqSpec, entry.getKey(), ids, maxInFlight);
+            }
+        }
+        reportLeftovers();
+        return books.size();
+    }
+
+    // Falls back to the creating token when the owner cannot log in again; its deletes then fail and are reported
+    private static String currentToken(RequestSpecification reqSpec, String token) {
+        try {
+            return TokenManager.getInstance().currentToken(reqSpec, token);
+        } catch (RuntimeException e) {
+            logger.warn("Could not renew the token of a book owner for cleanup: " + e.getMessage());
+            return token;
+        }
+    }
+
+    // Logs the remaining books and the users signed up since the last report; reported users are dropped
+    public void reportLeftovers() {
+        if (!books.isEmpty()) {
+            logger.warn(books.size() + " test books could not be deleted: " + listed(books.keySet(), books.size()));
+        }
+        int userTotal = userCount.getAndSet(0);
+        if (userTotal > 0) {
+            logger.warn(userTotal + " test users remain, the API cannot delete users: " + listed(users, userTotal));
+        }
+        users.clear();
+    }
+
+    private static <T extends Comparable<T>> String listed(Set<T> items, int total) {
+        List<T> sorted = new ArrayList<>(new TreeSet<>(items));
+        String listed = sorted.subList(0, Math.min(MAX_LISTED, sorted.size())).toString();
+        return total > MAX_LISTED ? listed + " and " + (total - MAX_LISTED) + " more" : listed;
+    }
+}
@@ -2,35 +2,167 @@ package com.bkstore.fastapi.common;
 
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.builder.ResponseSpecBuilder;
-import io.restassured.filter.log.LogDetail;
 import io.restassured.http.ContentType;
 import io.restassured.specification.RequestSpecification;
 import io.restassured.specification.ResponseSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeSuite;
+import org.HdrHistogram.Histogram;
+import com.bkstore.fastapi.api.filters.CircuitBreakerFilter;
+import com.bkstore.fastapi.api.filters.HttpLogMode;
+import com.bkstore.fastapi.api.filters.LatencyBudgetFilter;
+import com.bkstore.fastapi.api.filters.ResponseTimingFilter;
+import com.bkstore.fastapi.api.filters.TrafficRecorderFilter;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.api.services.TestDataRegistry;
+import com.bkstore.fastapi.perf.EndpointMetrics;
+import com.bkstore.fastapi.perf.LatencyBudgets;
+import com.bkstore.fastapi.perf.PerformanceBaseline;
 import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.TestConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class BaseTest {
 
+    private static final Logger logger = LogManager.getLogger(BaseTest.class);
+
     protected static RequestSpecification requestSpec;
     protected static ResponseSpecification responseSpec;
+    // Request/response logging, see http.log.mode in config-<env>.properties
+    protected static HttpLogMode httpLogMode;
 
     @BeforeSuite
     public void setup() {
-        // Read base URI and base path from config.properties
-        String baseUri = ConfigReader.getProperty("base.uri");
+        httpLogMode = HttpLogMode.fromConfig();
 
         // Build Request Specification
-        requestSpec = new RequestSpecBuilder()
-                .setBaseUri(baseUri)
-                .setContentType(ContentType.JSON) // Or other content types if needed
-                .log(LogDetail.ALL) // Log all request details for debugging
-                .build();
+        requestSpec = baseRequestSpecBuilder().build();
 
         // Build Response Specification (optional, but good for common validations)
-        responseSpec = new ResponseSpecBuilder()
+        responseSpec = httpLogMode.apply(new ResponseSpecBuilder()
                 .expectStatusCode(200) // Default expected status code
                 .expectContentType(ContentType.JSON) // Default expected content type
-                .log(LogDetail.ALL) // Log all response details for debugging
+                .expectResponseTime(lessThanOrEqualTo(TestConfig.get().getResponseTimeout().toMillis()),
+                        TimeUnit.MILLISECONDS)) // Hard limit for any call, per-route budgets are latency.budget.*
+                .build();
+    }
+
+    // Base URI, pooled connections, logging, timing and recording shared by every RestAssured spec in the suite;
+    // tests that need a variation (e.g. no Authorization header) start from this builder
+    protected static RequestSpecBuilder baseRequestSpecBuilder() {
+        // Read base URI and base path from config.properties
+        RequestSpecBuilder builder = httpLogMode.apply(new RequestSpecBuilder() // Logs requests as configured by http.log.mode
+                .setBaseUri(ConfigReader.getProperty("base.uri"))
+                .setConfig(HttpConnectionPool.getInstance().restAssuredConfig() // Pooled keep-alive connections
+                        .objectMapperConfig(PayloadCodec.objectMapperConfig())) // One shared ObjectMapper for RestAssured's mapping
+                .setContentType(ContentType.JSON)); // Or other content types if needed
+        builder.addFilter(CircuitBreakerFilter.getInstance()); // Fail fast once the server is down, see CircuitBreakerListener
+        builder.addFilter(LatencyBudgetFilter.getInstance()); // Single-call latency budgets, see LatencyBudgetListener
+        if (Boolean.parseBoolean(ConfigReader.getProperty("metrics.timing.enabled", "true"))) {
+            builder.addFilter(ResponseTimingFilter.getInstance()); // Per-endpoint latency for the Extent report
+        }
+        if (TrafficRecorderFilter.isEnabled()) {
+            builder.addFilter(TrafficRecorderFilter.getInstance()); // Record the run for TrafficReplayer
+        }
+        return builder;
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void tearDown() {
+        cleanupTestData();
+        // Connection reuse statistics for the whole suite
+        logger.info("HTTP connection pool: " + HttpConnectionPool.getInstance().statistics());
+        if (TrafficRecorderFilter.isEnabled()) {
+            TrafficRecorderFilter.getInstance().close();
+        }
+
+        // Both checks always run, so the history is recorded even when a budget is exceeded
+        List<String> failures = new ArrayList<>();
+        failures.addAll(checkSuiteLatencyBudgets());
+        failures.addAll(checkPerformanceBaseline(currentSuiteName()));
+        if (!failures.isEmpty()) {
+            throw new AssertionError(String.join("\n", failures));
+        }
+    }
+
+    // Deletes the books the tests left behind (TestDataRegistry) and reports what remains. The cleanup spec has no
+    // logging, timing or recording filters, so the bulk deletes stay out of the report, the baseline and the traffic log
+    private static void cleanupTestData() {
+        TestDataRegistry registry = TestDataRegistry.getInstance();
+        if (!Boolean.parseBoolean(ConfigReader.getProperty("test.data.cleanup.enabled", "true"))) {
+            registry.reportLeftovers();
+            return;
+        }
+        RequestSpecification cleanupSpec = new RequestSpecBuilder()
+                .setBaseUri(ConfigReader.getProperty("base.uri"))
+                .setConfig(HttpConnectionPool.getInstance().restAssuredConfig()
+                        .objectMapperConfig(PayloadCodec.objectMapperConfig()))
+                .setContentType(ContentType.JSON)
+                .addFilter(CircuitBreakerFilter.getInstance()) // A dead server fails the cleanup fast as well
                 .build();
+        registry.cleanup(cleanupSpec, ConfigReader.getIntProperty("test.data.cleanup.max.in.flight", 8));
+    }
+
+    // Percentile budgets (latency.budget.<route>.p<N>.ms) over every call of the suite, from ResponseTimingFilter;
+    // returns the failure message in fail mode
+    private static List<String> checkSuiteLatencyBudgets() {
+        LatencyBudgets budgets = LatencyBudgets.getInstance();
+        if (budgets.getPercentileScope() != LatencyBudgets.Scope.SUITE) {
+            return Collections.emptyList();
+        }
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : EndpointMetrics.getInstance().snapshot().entrySet()) {
+            violations.addAll(budgets.percentileViolations(entry.getKey(), entry.getValue()));
+        }
+        if (violations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String message = "Suite latency budget exceeded:\n  " + String.join("\n  ", violations);
+        if (budgets.getMode() == LatencyBudgets.Mode.FAIL) {
+            return Collections.singletonList(message);
+        }
+        logger.warn(message);
+        return Collections.emptyList();
+    }
+
+    // Compares this run with the performance history (perf.history.*) and records it; returns the failure message
+    // when an endpoint regressed significantly and perf.regression.mode=fail
+    private static List<String> checkPerformanceBaseline(String suiteName) {
+        EndpointMetrics metrics = EndpointMetrics.getInstance();
+        if (!PerformanceBaseline.isEnabled() || metrics.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> regressions = new ArrayList<>();
+        for (PerformanceBaseline.Comparison comparison : new PerformanceBaseline().evaluate(suiteName, metrics.snapshot(), metrics.getActiveSeconds())) {
+            if (comparison.getVerdict() == PerformanceBaseline.Verdict.REGRESSION) {
+                regressions.add(comparison.describe());
+            }
+        }
+        if (regressions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String message = "Performance regression against baseline:\n  " + String.join("\n  ", regressions);
+        if ("fail".equalsIgnoreCase(ConfigReader.getProperty("perf.regression.mode", "fail"))) {
+            return Collections.singletonList(message);
+        }
+        logger.warn(message);
+        return Collections.emptyList();
+    }
+
+    // TestNG does not inject the context into @AfterSuite methods; the running configuration method knows its suite
+    private static String currentSuiteName() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        return result == null ? "suite" : result.getTestContext().getSuite().getName();
     }
-}
\ No newline at end of file
+}
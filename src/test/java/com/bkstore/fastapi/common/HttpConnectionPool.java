@@ -0,0 +1,191 @@
+package com.bkstore.fastapi.common;
+
+import com.bkstore.fastapi.utilities.TestConfig;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// One pooled set of keep-alive connections shared by every RestAssured request in the JVM.
+// Without it RestAssured may open a new TCP (and TLS) connection per call; with it connections are
+// reused up to the configured limits, idle ones are evicted in the background, and reuse is counted.
+public final class HttpConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger(HttpConnectionPool.class);
+
+    // Static because the connection operator is created inside the manager's constructor
+    private static final LongAdder connectionsOpened = new LongAdder();
+    private static final LongAdder requestsSent = new LongAdder();
+    // Set while the current thread sends a request whose body the caller streams itself, see unbuffered()
+    private static final ThreadLocal<Boolean> streamingBody = ThreadLocal.withInitial(() -> false);
+
+    private static HttpConnectionPool instance;
+
+    private final CountingConnectionManager connectionManager;
+    private final long keepAliveMillis;
+    // RestAssured reconfigures the client (interceptors, params) on every request, so a client shared between threads
+    // serializes all requests on its monitor; each thread gets its own client on top of the one shared pool instead
+    private final ThreadLocal<HttpClient> httpClients = ThreadLocal.withInitial(this::newHttpClient);
+    private final ScheduledExecutorService evictor;
+
+    private HttpConnectionPool(int maxTotal, int maxPerRoute, long keepAliveSeconds, long idleEvictSeconds) {
+        connectionManager = new CountingConnectionManager(maxTotal, maxPerRoute);
+        keepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleAtFixedRate(() -> connectionManager.evict(idleEvictSeconds), idleEvictSeconds, idleEvictSeconds, TimeUnit.SECONDS);
+
+        logger.info("HTTP connection pool created: maxTotal=" + maxTotal + ", maxPerRoute=" + maxPerRoute
+                + ", keepAlive=" + keepAliveSeconds + "s, idleEviction=" + idleEvictSeconds + "s");
+    }
+
+    // RestAssured 5 runs every request on an AbstractHttpClient (its HTTPBuilder casts the factory's client to one), so
+    // the HttpClientBuilder / PoolingHttpClientConnectionManager API cannot be used. The deprecated HttpClient 4.2
+    // classes RestAssured needs are confined to this method and CountingConnectionManager.
+    @SuppressWarnings("deprecation")
+    private HttpClient newHttpClient() {
+        DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager);
+        httpClient.addRequestInterceptor((request, context) -> requestsSent.increment());
+        // RestAssured never hands streamed entities back, which would keep every connection leased until the pool
+        // is exhausted. Buffering the body here makes it non-streaming, so the connection is returned right away.
+        httpClient.addResponseInterceptor((response, context) -> {
+            HttpEntity entity = response.getEntity();
+            if (entity != null && entity.isStreaming() && !streamingBody.get()) {
+                response.setEntity(new BufferedHttpEntity(entity));
+                EntityUtils.consume(entity);
+            }
+        });
+        // Honour the server's Keep-Alive header but never keep a connection longer than configured
+        DefaultConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
+        httpClient.setKeepAliveStrategy((response, context) -> {
+            long serverMillis = serverStrategy.getKeepAliveDuration(response, context);
+            return serverMillis > 0 ? Math.min(serverMillis, keepAliveMillis) : keepAliveMillis;
+        });
+        return httpClient;
+    }
+
+    public static synchronized HttpConnectionPool getInstance() {
+        if (instance == null) {
+            TestConfig.HttpPool pool = TestConfig.get().getHttpPool();
+            instance = new HttpConnectionPool(pool.getMaxTotal(), pool.getMaxPerRoute(),
+                    pool.getKeepAlive().getSeconds(), pool.getIdleEviction().getSeconds());
+        }
+        return instance;
+    }
+
+    // RestAssured configuration that routes every request through the pool. RestAssured asks the factory for a client
+    // on each request (it would cache a single instance with reuseHttpClientInstance()) and never shuts it down.
+    // The timeouts (http.connect.timeout.ms, http.read.timeout.ms) are applied to the client on every request;
+    // without them a server that accepts connections but never answers blocks the calling thread forever.
+    // The parameter names are deprecated with the HttpClient 4.2 API, but they are what RestAssured applies (see newHttpClient)
+    @SuppressWarnings("deprecation")
+    public RestAssuredConfig restAssuredConfig() {
+        TestConfig config = TestConfig.get();
+        int connectMillis = (int) config.getConnectTimeout().toMillis();
+        return RestAssuredConfig.config().httpClient(HttpClientConfig.httpClientConfig()
+                .httpClientFactory(httpClients::get)
+                .setParam(CoreConnectionPNames.CONNECTION_TIMEOUT, connectMillis)
+                .setParam(CoreConnectionPNames.SO_TIMEOUT, (int) config.getReadTimeout().toMillis())
+                .setParam(ClientPNames.CONN_MANAGER_TIMEOUT, (long) connectMillis)); // Waiting for a free pooled connection
+    }
+
+    // Sends the request(s) made by call without buffering the response bodies, so a large body can be read
+    // incrementally from Response.asInputStream(). The caller must read the body to the end or close that stream,
+    // otherwise the connection stays leased. Only use it for calls without body assertions (they buffer anyway).
+    public static <T> T unbuffered(Supplier<T> call) {
+        streamingBody.set(true);
+        try {
+            return call.get();
+        } finally {
+            streamingBody.remove();
+        }
+    }
+
+    // True while the current thread is inside unbuffered(): filters must not read the response body then
+    public static boolean isUnbuffered() {
+        return streamingBody.get();
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    public long getRequestsSent() {
+        return requestsSent.sum();
+    }
+
+    // Share of requests that were served over an already open connection
+    public double getReuseRatio() {
+        long requests = getRequestsSent();
+        return requests == 0 ? 0 : Math.max(0, 1.0 - getConnectionsOpened() / (double) requests);
+    }
+
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    public String statistics() {
+        PoolStats stats = getPoolStats();
+        return String.format("requests=%d, connectionsOpened=%d, reuse=%.1f%%, leased=%d, available=%d, pending=%d, max=%d",
+                getRequestsSent(), getConnectionsOpened(), getReuseRatio() * 100,
+                stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    // Counts every new socket the pool opens, so reuse can be reported. HttpClient 4.2 pool, see newHttpClient
+    @SuppressWarnings("deprecation")
+    private static final class CountingConnectionManager extends PoolingClientConnectionManager {
+
+        private CountingConnectionManager(int maxTotal, int maxPerRoute) {
+            super(SchemeRegistryFactory.createDefault());
+            setMaxTotal(maxTotal);
+            setDefaultMaxPerRoute(maxPerRoute);
+        }
+
+        private void evict(long idleSeconds) {
+            closeExpiredConnections();
+            closeIdleConnections(idleSeconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schemeRegistry) {
+            return new DefaultClientConnectionOperator(schemeRegistry) {
+                @Override
+                public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local,
+                                           HttpContext context, HttpParams params) throws IOException {
+                    connectionsOpened.increment();
+                    super.openConnection(conn, target, local, context, params);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.api.resilience.CircuitBreaker;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+
+// Skips test methods while the API circuit is open (see CircuitBreaker), so a suite running against a dead server
+// finishes in seconds with the remaining tests reported as skipped, instead of every test waiting for its own timeouts.
+// Tests run again once the circuit is due for its probe request.
+public class CircuitBreakerListener implements IInvokedMethodListener {
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        CircuitBreaker breaker = CircuitBreaker.getInstance();
+        if (breaker.isOpen()) {
+            throw new SkipException("API unavailable: " + breaker.describe());
+        }
+    }
+}
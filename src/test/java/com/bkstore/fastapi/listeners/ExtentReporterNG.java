@@ -6,26 +6,57 @@ import com.aventstack.extentreports.Status;
 import com.aventstack.extentreports.markuputils.ExtentColor;
 import com.aventstack.extentreports.markuputils.MarkupHelper;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.JsonFormatter;
 import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.bkstore.fastapi.api.filters.FailureLogFilter;
+import com.bkstore.fastapi.perf.EndpointMetrics;
+import com.bkstore.fastapi.perf.PerformanceBaseline;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
 
 import org.testng.ISuiteListener;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 import org.testng.ISuite;
+import org.HdrHistogram.Histogram;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ExtentReporterNG implements ITestListener, ISuiteListener{
 
     // ExtentReports and ExtentTest objects are crucial for reporting
     public ExtentSparkReporter sparkReporter; // For HTML report generation
     public ExtentReports extent;             // Main class for ExtentReports
-    public ExtentTest test;                  // Represents a test case in the report
+
+    // Represents the test case running on the current thread; thread-confined so parallel tests never log into each other
+    private final ThreadLocal<ExtentTest> currentTest = new ThreadLocal<>();
+
+    // Incremental flushing: the HTML file is rewritten every report.flush.every.tests finished tests and at least
+    // every report.flush.interval.seconds, so a long run keeps an up-to-date report even if the JVM dies
+    private final AtomicInteger testsSinceFlush = new AtomicInteger();
+    private int flushEveryTests;
+    private ScheduledExecutorService flusher;
+    private boolean enabled;
+
+    // Report of the running JVM, other outputs of the run (e.g. the Flight Recorder dump) are written next to it
+    private static volatile String reportPath;
+
+    private static final int TIMELINE_ROWS = 60;
+    private static final int TIMELINE_BAR_WIDTH = 40;
 
     // Logger for logging events
     // Using Log4j2 for logging, which is a common logging framework in Java
@@ -37,21 +68,26 @@ public class ExtentReporterNG implements ITestListener, ISuiteListener{
     {
         // This method can be used to perform setup before any test suite runs
         logger.info("Starting test suite: " + suite.getName());
-    }
-
-    @Override
-    public void onStart(ITestContext context) {
+        EndpointMetrics.getInstance().reset();
 
-        // Log to Log4j2 that the test context is starting
-        logger.info("Test context started: " + context.getName());
+        // report.formats selects the reporters, e.g. "extent,jsonl" or just "jsonl" for constant-memory reporting
+        enabled = ConfigReader.getProperty("report.formats", "extent,jsonl").toLowerCase().contains("extent");
+        if (!enabled) {
+            return;
+        }
+        if (extent != null) {
+            // A later suite in the same JVM adds to the report created by the first one
+            startFlusher();
+            return;
+        }
 
         // Generate a timestamp for the report file name to ensure uniqueness
         String timestamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
-        String reportName = "Test-Report-" + timestamp + ".html";
+        String reportName = "Test-Report-" + timestamp + Shard.fileSuffix() + ".html";
 
         // Define the path where the report will be generated
         // We'll put it in a 'reports' folder at the project root
-        String reportPath = System.getProperty("user.dir") + File.separator + "reports" + File.separator + reportName;
+        reportPath = System.getProperty("user.dir") + File.separator + "reports" + File.separator + reportName;
 
         // Initialize ExtentSparkReporter
         sparkReporter = new ExtentSparkReporter(reportPath);
@@ -65,6 +101,11 @@ public class ExtentReporterNG implements ITestListener, ISuiteListener{
         // Initialize ExtentReports and attach the Spark Reporter
         extent = new ExtentReports();
         extent.attachReporter(sparkReporter);
+        if (Shard.isSharded()) {
+            // JSON archive of the same report, ShardReportMerger combines the shards' archives into one HTML report
+            extent.attachReporter(new JsonFormatter(reportPath.replaceAll("\\.html$", ".json")));
+            extent.setSystemInfo("Shard", Shard.label());
+        }
 
         // Set system information (optional, but good for context)
         extent.setSystemInfo("Host Name", "Localhost");
@@ -73,17 +114,49 @@ public class ExtentReporterNG implements ITestListener, ISuiteListener{
         extent.setSystemInfo("OS", System.getProperty("os.name"));
         extent.setSystemInfo("Java Version", System.getProperty("java.version"));
 
+        // Flush on a timer and when the JVM exits, not only at the end of the suite
+        startFlusher();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushIfPending, "extent-report-final-flush"));
 
         // Log to Log4j2 that the report has been initialized
         logger.info("Extent Report initialized at : " + reportPath);
     }
 
+    // Absolute path of the HTML report, or null when the Extent report is disabled
+    public static String getReportPath() {
+        return reportPath;
+    }
+
     // This method is called after all tests in a suite have run
     @Override
+    public void onFinish(ISuite suite) {
+        if (extent == null) {
+            return;
+        }
+        // Stopped between suites, the next suite's onStart starts it again
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        renderEndpointMetrics();
+        flush();
+        logger.info("Extent Report generated at: " + sparkReporter.getFile().getAbsolutePath());
+        logger.info("Finished test suite: " + suite.getName());
+    }
+
+    @Override
+    public void onStart(ITestContext context) {
+        // Log to Log4j2 that the test context is starting
+        logger.info("Test context started: " + context.getName());
+    }
+
+    // This method is called after all tests in a <test> tag have run
+    @Override
     public void onFinish(ITestContext context) {
-        // Flush the report to write all collected data to the HTML file
-        extent.flush();
-        System.out.println("Extent Report generated at: " + sparkReporter.getFile().getAbsolutePath());
+        // Write what has been collected so far; the suite-level flush writes the final report
+        if (extent != null) {
+            flush();
+        }
         // Log to Log4j2 that the test context has finished
         logger.info("Test context finished: " + context.getName());
     }
@@ -91,48 +164,91 @@ public class ExtentReporterNG implements ITestListener, ISuiteListener{
     // This method is called before each test method starts
     @Override
     public void onTestStart(ITestResult result) {
+        // HTTP exchanges captured before this test (e.g. by setup methods) do not belong to it
+        FailureLogFilter.clear();
+
+        // Log to Log4j2 that the test context is starting
+        logger.info("Starting test method: " + result.getMethod().getMethodName());
+        if (!enabled) {
+            return;
+        }
+
         // Create a new test entry in the report for each test method
         // The test name will be the method name, and description will be from @Test annotation
-        test = extent.createTest(result.getMethod().getMethodName())
+        ExtentTest test = extent.createTest(result.getMethod().getMethodName())
                      .assignCategory(result.getMethod().getGroups()); // Assign test to its TestNG groups
         test.info("Starting test: " + result.getMethod().getMethodName());
         if (result.getMethod().getDescription() != null && !result.getMethod().getDescription().isEmpty()) {
             test.info("Description: " + result.getMethod().getDescription());
         }
-
-        // Log to Log4j2 that the test context is starting
-        logger.info("Starting test method: " + result.getMethod().getMethodName());
+        currentTest.set(test);
     }
 
     // This method is called when a test method succeeds
     @Override
     public void onTestSuccess(ITestResult result) {
-        // Log the test status as PASS
-        test.log(Status.PASS, MarkupHelper.createLabel(result.getMethod().getMethodName() + " PASSED ", ExtentColor.GREEN));
         // Log to Log4j2 that the test context is starting
         logger.info("Test method passed : " + result.getMethod().getMethodName());
+        // Release the captured exchanges, they are only needed when a test fails
+        FailureLogFilter.clear();
+        if (!enabled) {
+            return;
+        }
+
+        // Log the test status as PASS
+        ExtentTest test = testFor(result);
+        test.log(Status.PASS, MarkupHelper.createLabel(result.getMethod().getMethodName() + " PASSED ", ExtentColor.GREEN));
+        // Latency budget breaches when latency.budget.mode=warn
+        Object budgetWarnings = result.getAttribute(LatencyBudgetListener.BUDGET_WARNINGS);
+        if (budgetWarnings instanceof List) {
+            for (Object warning : (List<?>) budgetWarnings) {
+                test.warning(String.valueOf(warning));
+            }
+        }
+        testFinished();
     }
 
     // This method is called when a test method fails
     @Override
     public void onTestFailure(ITestResult result) {
+        // Log to Log4j2 that the test context is starting
+        logger.info("Test method failed! : " + result.getThrowable());
+
+        // Attach the last HTTP exchanges of the failed test (only captured when http.log.mode=on_failure)
+        String exchanges = FailureLogFilter.drain();
+        if (!exchanges.isEmpty()) {
+            logger.error("HTTP exchanges of failed test " + result.getMethod().getMethodName() + ":\n" + exchanges);
+        }
+        if (!enabled) {
+            return;
+        }
+
         // Log the test status as FAIL and include the exception details
+        ExtentTest test = testFor(result);
         test.log(Status.FAIL, MarkupHelper.createLabel(result.getMethod().getMethodName() + " FAILED ", ExtentColor.RED));
         test.fail(result.getThrowable()); // Log the exception/error that caused the failure
-
-        // Log to Log4j2 that the test context is starting
-        logger.info("Test method failed! : " + result.getThrowable());
+        if (!exchanges.isEmpty()) {
+            test.info("Last HTTP exchanges before the failure:");
+            test.info(MarkupHelper.createCodeBlock(escapeHtml(exchanges)));
+        }
+        testFinished();
     }
 
     // This method is called when a test method is skipped
     @Override
     public void onTestSkipped(ITestResult result) {
+        // Log to Log4j2 that the test context is starting
+        logger.info("Test skipped! : " + result.getThrowable());
+        FailureLogFilter.clear();
+        if (!enabled) {
+            return;
+        }
+
         // Log the test status as SKIP and include the skip reason
+        ExtentTest test = testFor(result);
         test.log(Status.SKIP, MarkupHelper.createLabel(result.getMethod().getMethodName() + " SKIPPED ", ExtentColor.ORANGE));
         test.skip(result.getThrowable()); // Log the reason for skipping if available
-
-        // Log to Log4j2 that the test context is starting
-        logger.info("Test skipped! : " + result.getThrowable());
+        testFinished();
     }
 
     // These methods are less commonly used for basic reporting but are part of the ITestListener interface
@@ -143,6 +259,129 @@ public class ExtentReporterNG implements ITestListener, ISuiteListener{
 
     @Override
     public void onTestFailedWithTimeout(ITestResult result) {
-        // Not implemented for this basic setup
+        // TestNG reports timeouts as failures
+        onTestFailure(result);
+    }
+
+    // The node created in onTestStart on this thread; tests skipped because a configuration method failed
+    // never get onTestStart, so they get their node here
+    private ExtentTest testFor(ITestResult result) {
+        ExtentTest test = currentTest.get();
+        if (test == null) {
+            test = extent.createTest(result.getMethod().getMethodName()).assignCategory(result.getMethod().getGroups());
+        }
+        return test;
+    }
+
+    // Adds an "API Performance" entry with latency percentiles per endpoint, the request-rate timeline
+    // and the slowest individual calls (recorded by ResponseTimingFilter)
+    private void renderEndpointMetrics() {
+        EndpointMetrics metrics = EndpointMetrics.getInstance();
+        if (metrics.isEmpty()) {
+            return;
+        }
+        ExtentTest performance = extent.createTest("API Performance").assignCategory("performance");
+
+        Map<String, Histogram> histograms = metrics.snapshot();
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[]{"Endpoint", "Calls", "Server errors", "p50 (ms)", "p90 (ms)", "p99 (ms)", "Max (ms)"});
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            rows.add(new String[]{entry.getKey(), String.valueOf(histogram.getTotalCount()), String.valueOf(metrics.getErrorCount(entry.getKey())),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue())});
+            logger.info(String.format("Endpoint %-22s calls=%d p50=%sms p90=%sms p99=%sms max=%sms", entry.getKey(), histogram.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue())));
+        }
+        performance.createNode("Latency per endpoint").info(MarkupHelper.createTable(rows.toArray(new String[0][])));
+
+        // At most TIMELINE_ROWS rows, however long the suite ran
+        int bucketSeconds = (int) Math.max(1, (metrics.getActiveSeconds() + TIMELINE_ROWS - 1) / TIMELINE_ROWS);
+        NavigableMap<Long, Long> timeline = metrics.timeline(bucketSeconds);
+        long busiest = Collections.max(timeline.values());
+        long firstSecond = timeline.firstKey();
+        rows.clear();
+        rows.add(new String[]{"Offset (s)", "Requests", "Requests/s", ""});
+        for (Map.Entry<Long, Long> bucket : timeline.entrySet()) {
+            int bar = (int) Math.max(1, bucket.getValue() * TIMELINE_BAR_WIDTH / busiest);
+            rows.add(new String[]{String.valueOf(bucket.getKey() - firstSecond), String.valueOf(bucket.getValue()),
+                    String.format("%.1f", bucket.getValue() / (double) bucketSeconds), String.join("", Collections.nCopies(bar, "\u2588"))});
+        }
+        performance.createNode("Request rate timeline (" + bucketSeconds + "s buckets)").info(MarkupHelper.createTable(rows.toArray(new String[0][])));
+
+        rows.clear();
+        rows.add(new String[]{"Endpoint", "Duration (ms)", "Status", "Test", "Time"});
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss.SSS");
+        for (EndpointMetrics.Call call : metrics.slowestCalls()) {
+            rows.add(new String[]{call.getEndpoint(), millis(call.getDurationNanos()), call.getStatus() < 0 ? "no response" : String.valueOf(call.getStatus()),
+                    call.getTestName(), time.format(new Date(call.getTimestampMillis()))});
+        }
+        performance.createNode("Slowest " + EndpointMetrics.SLOWEST_CALLS + " calls").info(MarkupHelper.createTable(rows.toArray(new String[0][])));
+
+        // Comparison with the performance history, evaluated in BaseTest.tearDown()
+        List<PerformanceBaseline.Comparison> comparisons = PerformanceBaseline.lastComparisons();
+        if (!comparisons.isEmpty()) {
+            rows.clear();
+            rows.add(new String[]{"Endpoint", "Verdict", "Baseline runs", "p50 (ms) baseline \u2192 now", "p99 (ms) baseline \u2192 now",
+                    "Requests/s baseline \u2192 now", "p-value", "Effect (A)"});
+            for (PerformanceBaseline.Comparison comparison : comparisons) {
+                rows.add(new String[]{comparison.getEndpoint(), comparison.getVerdict().name(), String.valueOf(comparison.getBaselineRuns()),
+                        String.format("%.2f \u2192 %.2f", comparison.baselineMillis(50), comparison.currentMillis(50)),
+                        String.format("%.2f \u2192 %.2f", comparison.baselineMillis(99), comparison.currentMillis(99)),
+                        String.format("%.2f \u2192 %.2f", comparison.getBaselineThroughputPerSecond(), comparison.getThroughputPerSecond()),
+                        String.format("%.4f", comparison.getPValue()), String.format("%.2f", comparison.getEffectSize())});
+            }
+            ExtentTest baseline = performance.createNode("Baseline comparison");
+            baseline.info(MarkupHelper.createTable(rows.toArray(new String[0][])));
+            if (comparisons.stream().anyMatch(comparison -> comparison.getVerdict() == PerformanceBaseline.Verdict.REGRESSION)) {
+                baseline.fail("Significant latency regression against the baseline");
+            }
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    // Flushes every report.flush.interval.seconds while a suite runs
+    private void startFlusher() {
+        flushEveryTests = Math.max(1, ConfigReader.getIntProperty("report.flush.every.tests", 25));
+        long flushIntervalSeconds = Math.max(1, ConfigReader.getIntProperty("report.flush.interval.seconds", 30));
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "extent-report-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushIfPending, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Clears the thread's node and flushes once enough tests have finished since the last flush
+    private void testFinished() {
+        currentTest.remove();
+        if (testsSinceFlush.incrementAndGet() >= flushEveryTests) {
+            flush();
+        }
+    }
+
+    private void flushIfPending() {
+        if (testsSinceFlush.get() > 0) {
+            flush();
+        }
+    }
+
+    // ExtentReports rewrites the whole HTML file on flush, so flushes are serialized
+    private synchronized void flush() {
+        testsSinceFlush.set(0);
+        try {
+            extent.flush();
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush Extent report: " + e.getMessage());
+        }
+    }
+
+    // Response bodies are shown verbatim, so keep any markup in them from being rendered by the report
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.api.filters.FlightRecorderFilter;
+import com.bkstore.fastapi.api.filters.HttpExchangeEvent;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import io.restassured.RestAssured;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+
+// Records the run with Java Flight Recorder when jfr.enabled=true: the JDK configuration named by jfr.settings plus an
+// HttpExchangeEvent for every API call, so a slow call can be matched with the GC pauses, safepoints, lock contention
+// and allocations that happened during it. FlightRecorderFilter is registered as a RestAssured default filter, so
+// calls on every request spec are covered, including the lean load and soak specs.
+// One recording covers all suites of the JVM; it is dumped after every suite next to the Extent report, as
+// Test-Report-<timestamp>.jfr, so the last dump holds the whole run. Open it in JDK Mission Control or with
+//   jfr print --events com.bkstore.fastapi.HttpExchange reports/Test-Report-<timestamp>.jfr
+public class FlightRecorderListener implements ISuiteListener {
+
+    private static final Logger logger = LogManager.getLogger(FlightRecorderListener.class);
+
+    private static Recording recording;
+    private static File dumpFile;
+
+    @Override
+    public void onStart(ISuite suite) {
+        synchronized (FlightRecorderListener.class) {
+            if (recording != null || !Boolean.parseBoolean(ConfigReader.getProperty("jfr.enabled", "false"))) {
+                return;
+            }
+            String settings = ConfigReader.getProperty("jfr.settings", "profile");
+            try {
+                recording = new Recording(Configuration.getConfiguration(settings));
+            } catch (IOException | ParseException e) {
+                throw new RuntimeException("Unknown Flight Recorder configuration jfr.settings=" + settings, e);
+            }
+            recording.setName("bookstore-tests");
+            recording.enable(HttpExchangeEvent.class)
+                    .withThreshold(Duration.ofMillis(ConfigReader.getIntProperty("jfr.exchange.threshold.ms", 0)));
+            RestAssured.filters(FlightRecorderFilter.getInstance());
+            recording.start();
+            logger.info("Flight Recorder started with the '" + settings + "' configuration.");
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        synchronized (FlightRecorderListener.class) {
+            if (recording == null) {
+                return;
+            }
+            File file = dumpFile();
+            file.getParentFile().mkdirs();
+            try {
+                recording.dump(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write Flight Recorder dump " + file, e);
+            }
+            logger.info("Flight Recorder dump written to: " + file.getAbsolutePath());
+        }
+    }
+
+    // Next to the Extent report (Test-Report-<timestamp>.html -> .jfr); with the Extent report disabled a file of
+    // the same naming scheme in reports/
+    private static File dumpFile() {
+        if (dumpFile == null) {
+            String reportPath = ExtentReporterNG.getReportPath();
+            if (reportPath != null) {
+                dumpFile = new File(reportPath.replaceAll("\\.html$", ".jfr"));
+            } else {
+                String timestamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
+                dumpFile = new File(System.getProperty("user.dir") + File.separator + "reports",
+                        "Test-Report-" + timestamp + Shard.fileSuffix() + ".jfr");
+            }
+        }
+        return dumpFile;
+    }
+}
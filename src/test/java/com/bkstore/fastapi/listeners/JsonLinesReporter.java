@@ -0,0 +1,186 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.perf.EndpointMetrics;
+import com.bkstore.fastapi.perf.PerformanceBaseline;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.EnvironmentManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Streaming test report: one JSON object per line, written and flushed as soon as each test finishes.
+// Memory use is constant no matter how long the suite runs, and everything up to the last finished test
+// survives a JVM crash. Lines have a "type" of suite_start, test, endpoint (latency per endpoint),
+// baseline (comparison with the performance history) or suite_finish.
+// Enabled when report.formats contains "jsonl"; written to reports/Test-Results-<timestamp>.jsonl
+// (Test-Results-<timestamp>-shard-<i>-of-<n>.jsonl in a sharded run, see ShardReportMerger).
+public class JsonLinesReporter implements ITestListener, ISuiteListener {
+
+    private static final Logger logger = LogManager.getLogger(JsonLinesReporter.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final AtomicInteger passed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private Writer writer;
+    private File file;
+
+    @Override
+    public void onStart(ISuite suite) {
+        if (!ConfigReader.getProperty("report.formats", "extent,jsonl").toLowerCase().contains("jsonl") || writer != null) {
+            return;
+        }
+        String timestamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
+        file = new File(System.getProperty("user.dir") + File.separator + "reports", "Test-Results-" + timestamp + Shard.fileSuffix() + ".jsonl");
+        file.getParentFile().mkdirs();
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create JSON lines report " + file + ": " + e.getMessage(), e);
+        }
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "suite_start");
+        line.put("suite", suite.getName());
+        line.put("environment", EnvironmentManager.getEnvironment());
+        if (Shard.isSharded()) {
+            // ShardReportMerger tags every line of this file with the shard
+            line.put("shard", Shard.index());
+            line.put("shards", Shard.count());
+        }
+        line.put("timestamp", System.currentTimeMillis());
+        write(line);
+        logger.info("JSON lines report streaming to: " + file.getAbsolutePath());
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (writer == null) {
+            return;
+        }
+        // Per-endpoint latency recorded by ResponseTimingFilter
+        EndpointMetrics metrics = EndpointMetrics.getInstance();
+        for (Map.Entry<String, Histogram> entry : metrics.snapshot().entrySet()) {
+            Histogram histogram = entry.getValue();
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("type", "endpoint");
+            endpoint.put("suite", suite.getName());
+            endpoint.put("endpoint", entry.getKey());
+            endpoint.put("count", histogram.getTotalCount());
+            endpoint.put("serverErrors", metrics.getErrorCount(entry.getKey()));
+            endpoint.put("p50Millis", histogram.getValueAtPercentile(50) / NANOS_PER_MILLI);
+            endpoint.put("p90Millis", histogram.getValueAtPercentile(90) / NANOS_PER_MILLI);
+            endpoint.put("p99Millis", histogram.getValueAtPercentile(99) / NANOS_PER_MILLI);
+            endpoint.put("maxMillis", histogram.getMaxValue() / NANOS_PER_MILLI);
+            write(endpoint);
+        }
+        // Comparison with the performance history, evaluated in BaseTest.tearDown()
+        for (PerformanceBaseline.Comparison comparison : PerformanceBaseline.lastComparisons()) {
+            Map<String, Object> baseline = new LinkedHashMap<>();
+            baseline.put("type", "baseline");
+            baseline.put("suite", suite.getName());
+            baseline.putAll(comparison.toMap());
+            write(baseline);
+        }
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "suite_finish");
+        line.put("suite", suite.getName());
+        line.put("timestamp", System.currentTimeMillis());
+        line.put("passed", passed.get());
+        line.put("failed", failed.get());
+        line.put("skipped", skipped.get());
+        write(line);
+        synchronized (this) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Could not close JSON lines report: " + e.getMessage());
+            }
+            writer = null;
+        }
+        logger.info("JSON lines report generated at: " + file.getAbsolutePath());
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        passed.incrementAndGet();
+        writeResult(result, "PASS");
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        failed.incrementAndGet();
+        writeResult(result, "FAIL");
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        skipped.incrementAndGet();
+        writeResult(result, "SKIP");
+    }
+
+    private void writeResult(ITestResult result, String status) {
+        if (writer == null) {
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "test");
+        line.put("suite", result.getTestContext().getSuite().getName());
+        line.put("test", result.getTestContext().getName());
+        line.put("class", result.getTestClass().getName());
+        line.put("method", result.getMethod().getMethodName());
+        line.put("description", result.getMethod().getDescription());
+        line.put("groups", result.getMethod().getGroups());
+        if (result.getParameters().length > 0) {
+            line.put("parameters", Arrays.deepToString(result.getParameters()));
+        }
+        line.put("status", status);
+        line.put("start", result.getStartMillis());
+        line.put("durationMillis", Math.max(0, result.getEndMillis() - result.getStartMillis()));
+        line.put("thread", Thread.currentThread().getName());
+        if (result.getThrowable() != null) {
+            line.put("error", String.valueOf(result.getThrowable()));
+        }
+        write(line);
+    }
+
+    // One line per call, flushed right away so the file is complete up to the last finished test
+    private synchronized void write(Map<String, Object> line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(mapper.writeValueAsString(line));
+            writer.write('\n');
+            writer.flush();
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize report line for " + line.get("method") + ": " + e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Could not write JSON lines report: " + e.getMessage());
+        }
+    }
+}
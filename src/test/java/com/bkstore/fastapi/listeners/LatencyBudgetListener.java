@@ -0,0 +1,61 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.api.filters.LatencyBudgetFilter;
+import com.bkstore.fastapi.perf.LatencyBudgets;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Applies latency budgets to each test method: single-call breaches recorded by LatencyBudgetFilter and, with
+// latency.budget.percentile.scope=test, percentile budgets over the test's own calls.
+// latency.budget.mode=fail turns a passing test into a failure; warn keeps it passing and attaches the breaches
+// under BUDGET_WARNINGS so ExtentReporterNG can show them. Suite-wide percentile budgets are checked in BaseTest.
+public class LatencyBudgetListener implements IInvokedMethodListener {
+
+    public static final String BUDGET_WARNINGS = "latency.budget.warnings";
+
+    private static final Logger logger = LogManager.getLogger(LatencyBudgetListener.class);
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            LatencyBudgetFilter.clear();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        LatencyBudgets budgets = LatencyBudgets.getInstance();
+        List<String> breaches = new ArrayList<>(LatencyBudgetFilter.breaches());
+        if (budgets.getPercentileScope() == LatencyBudgets.Scope.TEST) {
+            for (Map.Entry<String, Histogram> entry : LatencyBudgetFilter.testLatencies().entrySet()) {
+                breaches.addAll(budgets.percentileViolations(entry.getKey(), entry.getValue()));
+            }
+        }
+        LatencyBudgetFilter.clear();
+        if (breaches.isEmpty()) {
+            return;
+        }
+
+        String testName = testResult.getMethod().getMethodName();
+        String message = "Latency budget exceeded in " + testName + ":\n  " + String.join("\n  ", breaches);
+        // Only passing tests are turned into failures, an earlier assertion error stays the reported cause
+        if (budgets.getMode() == LatencyBudgets.Mode.FAIL && testResult.getStatus() == ITestResult.SUCCESS) {
+            testResult.setStatus(ITestResult.FAILURE);
+            testResult.setThrowable(new AssertionError(message));
+        } else {
+            logger.warn(message);
+            testResult.setAttribute(BUDGET_WARNINGS, breaches);
+        }
+    }
+}
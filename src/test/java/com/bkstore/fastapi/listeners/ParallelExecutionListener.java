@@ -0,0 +1,39 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.TestConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IAlterSuiteListener;
+import org.testng.xml.XmlSuite;
+
+import java.util.List;
+
+// Lets any suite XML be run in parallel without editing it:
+//   mvn test -Dtest.parallel=methods -Dtest.thread.count=8
+// test.parallel accepts the TestNG modes (methods, classes, tests, instances, none).
+// When a property is not set, the values from the suite XML are kept.
+public class ParallelExecutionListener implements IAlterSuiteListener {
+
+    private static final Logger logger = LogManager.getLogger(ParallelExecutionListener.class);
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        String parallel = ConfigReader.getProperty("test.parallel", null);
+        int threadCount = TestConfig.get().getTestThreadCount();
+
+        for (XmlSuite suite : suites) {
+            if (parallel != null) {
+                XmlSuite.ParallelMode mode = XmlSuite.ParallelMode.getValidParallel(parallel);
+                if (mode == null) {
+                    throw new IllegalArgumentException("Unsupported test.parallel value: " + parallel);
+                }
+                suite.setParallel(mode);
+            }
+            if (threadCount > 0) {
+                suite.setThreadCount(threadCount);
+            }
+            logger.info("Suite '" + suite.getName() + "' runs with parallel=" + suite.getParallel() + ", thread-count=" + suite.getThreadCount());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import com.bkstore.fastapi.perf.ServiceWarmUp;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.TestConfig;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+// Readiness gate and warm-up before the first suite of the JVM (see readiness.* and warmup.rounds): waits until
+// /health is stable, then warms every route through the shared connection pool. Registered after
+// StubServerListener, so the stub is up, and before ExtentReporterNG and FlightRecorderListener, so the warm-up is
+// neither in the report's metrics nor in the recording. Throws, stopping the run, when the API never gets ready.
+public class ReadinessGateListener implements ISuiteListener {
+
+    private static boolean done;
+
+    @Override
+    public void onStart(ISuite suite) {
+        synchronized (ReadinessGateListener.class) {
+            if (done || !Boolean.parseBoolean(ConfigReader.getProperty("readiness.enabled", "true"))) {
+                return;
+            }
+            done = true;
+        }
+        // Pooled connections only: no logging, timing, budget, circuit breaker or recording filters
+        RequestSpecification warmUpSpec = new RequestSpecBuilder()
+                .setBaseUri(ConfigReader.getProperty("base.uri"))
+                .setConfig(HttpConnectionPool.getInstance().restAssuredConfig()
+                        .objectMapperConfig(PayloadCodec.objectMapperConfig()))
+                .setContentType(ContentType.JSON)
+                .build();
+        TestConfig.Readiness readiness = TestConfig.get().getReadiness();
+        ServiceWarmUp warmUp = new ServiceWarmUp(warmUpSpec);
+        warmUp.awaitReady(readiness.getStableSuccesses(), readiness.getInitialBackoff(), readiness.getMaxBackoff(),
+                readiness.getTimeout());
+        warmUp.warmUp(readiness.getWarmUpRounds());
+    }
+}
@@ -0,0 +1,40 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.perf.TestDurationHistory;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+// Records the wall time of every test method that ran (passed or failed; skipped tests did no work) and saves it to
+// the TestDurationHistory when the suite finishes, so the next run can schedule by it (see TestSchedulingInterceptor).
+public class TestDurationListener implements ITestListener, ISuiteListener {
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result);
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        record(result);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (TestDurationHistory.isEnabled() && TestSchedulingInterceptor.isEnabled(suite)) {
+            TestDurationHistory.getInstance().save();
+        }
+    }
+
+    private static void record(ITestResult result) {
+        if (TestDurationHistory.isEnabled() && TestSchedulingInterceptor.isEnabled(result.getTestContext().getSuite())) {
+            TestDurationHistory.getInstance().record(result.getMethod().getQualifiedName(), result.getEndMillis() - result.getStartMillis());
+        }
+    }
+}
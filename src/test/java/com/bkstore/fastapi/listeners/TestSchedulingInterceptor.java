@@ -0,0 +1,185 @@
+package com.bkstore.fastapi.listeners;
+
+import com.bkstore.fastapi.perf.TestDurationHistory;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.TestConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Schedules each <test> by how long its methods took in earlier runs (TestDurationHistory, recorded by
+// TestDurationListener). The methods are grouped into units (a single method, or a whole class with
+// test.shard.by=class; methods linked by dependsOnMethods/dependsOnGroups always share a unit), weighted by their
+// recorded time; methods without history count as the median of those with history, or all alike without any.
+//   - test.shard.count > 1: only this JVM's slice runs. Units are dealt out longest first to the shard with the least
+//     work so far. The assignment depends only on the suite and the history file, which shards never write, so every
+//     shard computes the same partition on its own and each method runs in exactly one shard.
+//   - parallel suites: units are handed to TestNG longest first, so the slowest tests start while there are still
+//     short ones left to fill the other threads, instead of a slow test starting last and running alone.
+// Methods within a unit keep their order. Explicit priorities still take precedence in TestNG's own ordering.
+// Suites that set the parameter test.scheduling.enabled=false (load and soak, where every shard generates load) are
+// neither partitioned nor recorded.
+public class TestSchedulingInterceptor implements IMethodInterceptor {
+
+    public enum Granularity { METHOD, CLASS }
+
+    private static final Logger logger = LogManager.getLogger(TestSchedulingInterceptor.class);
+
+    public static boolean isEnabled(ISuite suite) {
+        return !"false".equals(suite.getParameter("test.scheduling.enabled"));
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        boolean parallel = context.getCurrentXmlTest().getParallel().isParallel();
+        if ((!Shard.isSharded() && !parallel) || methods.isEmpty() || !isEnabled(context.getSuite())) {
+            return methods;
+        }
+        Granularity granularity = TestConfig.get().getEnum("test.shard.by", Granularity.class, Granularity.METHOD);
+        Map<ITestNGMethod, String> unitOf = units(methods, granularity);
+        Map<String, Long> methodWeights = methodWeights(methods);
+        Map<String, Long> unitWeights = new TreeMap<>();
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            unitWeights.merge(unitOf.get(method), methodWeights.get(method.getQualifiedName()), Long::sum);
+        }
+        List<String> longestFirst = new ArrayList<>(unitWeights.keySet());
+        longestFirst.sort(Comparator.comparing(unitWeights::get, Comparator.reverseOrder()));
+
+        Set<String> selectedUnits = new HashSet<>(longestFirst);
+        if (Shard.isSharded()) {
+            Map<String, Integer> shardOfUnit = assign(longestFirst, unitWeights, Shard.count());
+            selectedUnits.removeIf(unit -> shardOfUnit.get(unit) != Shard.index());
+        }
+        List<IMethodInstance> selected = new ArrayList<>();
+        long selectedWeight = 0;
+        for (IMethodInstance instance : methods) {
+            if (selectedUnits.contains(unitOf.get(instance.getMethod()))) {
+                selected.add(instance);
+                selectedWeight += methodWeights.get(instance.getMethod().getQualifiedName());
+            }
+        }
+        if (parallel) {
+            // Stable sort: methods of a unit stay in their original order
+            Map<String, Integer> rank = new HashMap<>();
+            longestFirst.forEach(unit -> rank.put(unit, rank.size()));
+            selected.sort(Comparator.comparing(instance -> rank.get(unitOf.get(instance.getMethod()))));
+        }
+
+        long totalWeight = unitWeights.values().stream().mapToLong(Long::longValue).sum();
+        String share = Shard.isSharded() ? Shard.label() + " runs " + selected.size() + " of " + methods.size() + " test methods"
+                : "Runs " + selected.size() + " test methods";
+        logger.info(share + " of '" + context.getName() + "' (" + unitWeights.size() + " units by "
+                + granularity.name().toLowerCase() + (history().isEmpty() ? ", no duration history" : ", about "
+                + selectedWeight + " of " + totalWeight + " ms by history") + (parallel ? ", longest first" : "") + ")");
+        return selected;
+    }
+
+    // Recorded average duration of each method in milliseconds (at least 1), see the class comment for the fallbacks
+    private static Map<String, Long> methodWeights(List<IMethodInstance> methods) {
+        Map<String, Double> history = history();
+        List<Double> known = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            Double millis = history.get(instance.getMethod().getQualifiedName());
+            if (millis != null) {
+                known.add(millis);
+            }
+        }
+        Collections.sort(known);
+        long fallback = known.isEmpty() ? 1 : Math.max(1, Math.round(known.get(known.size() / 2)));
+        Map<String, Long> weights = new HashMap<>();
+        for (IMethodInstance instance : methods) {
+            String name = instance.getMethod().getQualifiedName();
+            Double millis = history.get(name);
+            weights.put(name, millis == null ? fallback : Math.max(1, Math.round(millis)));
+        }
+        return weights;
+    }
+
+    private static Map<String, Double> history() {
+        return TestDurationHistory.isEnabled() ? TestDurationHistory.getInstance().getDurations() : Collections.emptyMap();
+    }
+
+    // Unit of every method: its qualified name, or its class name with test.shard.by=class and for classes using
+    // dependsOnGroups; dependsOnMethods then merges units (union-find, the smallest key names the merged unit)
+    private static Map<ITestNGMethod, String> units(List<IMethodInstance> methods, Granularity granularity) {
+        Set<String> wholeClasses = new HashSet<>();
+        for (IMethodInstance instance : methods) {
+            if (granularity == Granularity.CLASS || instance.getMethod().getGroupsDependedUpon().length > 0) {
+                wholeClasses.add(instance.getMethod().getRealClass().getName());
+            }
+        }
+        Map<String, String> initialUnit = new HashMap<>();
+        Map<String, String> parent = new HashMap<>();
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            String className = method.getRealClass().getName();
+            String unit = wholeClasses.contains(className) ? className : method.getQualifiedName();
+            initialUnit.put(method.getQualifiedName(), unit);
+            parent.put(unit, unit);
+        }
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            for (String dependency : method.getMethodsDependedUpon()) {
+                String dependencyUnit = initialUnit.get(dependency);
+                if (dependencyUnit != null) {
+                    union(parent, initialUnit.get(method.getQualifiedName()), dependencyUnit);
+                }
+            }
+        }
+        Map<ITestNGMethod, String> units = new HashMap<>();
+        for (IMethodInstance instance : methods) {
+            units.put(instance.getMethod(), find(parent, initialUnit.get(instance.getMethod().getQualifiedName())));
+        }
+        return units;
+    }
+
+    private static String find(Map<String, String> parent, String unit) {
+        String root = unit;
+        while (!parent.get(root).equals(root)) {
+            root = parent.get(root);
+        }
+        return root;
+    }
+
+    private static void union(Map<String, String> parent, String a, String b) {
+        String rootA = find(parent, a);
+        String rootB = find(parent, b);
+        if (rootA.compareTo(rootB) < 0) {
+            parent.put(rootB, rootA);
+        } else if (rootB.compareTo(rootA) < 0) {
+            parent.put(rootA, rootB);
+        }
+    }
+
+    // Longest-processing-time-first: each unit, longest first (ties by key), to the least loaded shard (ties by index)
+    private static Map<String, Integer> assign(List<String> longestFirst, Map<String, Long> unitWeights, int shardCount) {
+        long[] load = new long[shardCount];
+        Map<String, Integer> assignment = new HashMap<>();
+        for (String unit : longestFirst) {
+            int target = 0;
+            for (int shard = 1; shard < shardCount; shard++) {
+                if (load[shard] < load[target]) {
+                    target = shard;
+                }
+            }
+            load[target] += unitWeights.get(unit);
+            assignment.put(unit, target);
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,145 @@
+package com.bkstore.fastapi.perf;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Suite-wide timing of every API call, grouped by endpoint ("GET /books/{id}"), fed by ResponseTimingFilter.
+// Keeps a latency histogram per endpoint, a per-second request count for the timeline and the slowest calls.
+// Memory is bounded: histograms are fixed size, the timeline has one counter per second of activity and
+// only the slowest SLOWEST_CALLS calls are kept.
+public class EndpointMetrics {
+
+    public static final int SLOWEST_CALLS = 10;
+
+    private static final EndpointMetrics INSTANCE = new EndpointMetrics();
+
+    private final Map<String, RouteLatency> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, LongAdder> requestsPerSecond = new ConcurrentSkipListMap<>();
+    private final PriorityQueue<Call> slowest = new PriorityQueue<>(Comparator.comparingLong(Call::getDurationNanos));
+    // Calls faster than this can never enter the slowest list, so most calls skip the lock
+    private volatile long slowestThresholdNanos;
+
+    public static EndpointMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(String endpoint, long durationNanos, int status, String testName) {
+        latencies.computeIfAbsent(endpoint, RouteLatency::new).record(durationNanos, durationNanos, status < 0 || status >= 500);
+        long second = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        requestsPerSecond.computeIfAbsent(second, key -> new LongAdder()).increment();
+
+        if (durationNanos > slowestThresholdNanos) {
+            synchronized (slowest) {
+                slowest.add(new Call(endpoint, durationNanos, status, testName, System.currentTimeMillis()));
+                if (slowest.size() > SLOWEST_CALLS) {
+                    slowest.poll();
+                }
+                if (slowest.size() == SLOWEST_CALLS) {
+                    slowestThresholdNanos = slowest.peek().getDurationNanos();
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return latencies.isEmpty();
+    }
+
+    // Endpoint label -> histogram of everything recorded so far, sorted by label
+    public Map<String, Histogram> snapshot() {
+        Map<String, Histogram> snapshot = new TreeMap<>();
+        latencies.forEach((endpoint, latency) -> snapshot.put(endpoint, latency.serviceTimeSnapshot()));
+        return snapshot;
+    }
+
+    public long getErrorCount(String endpoint) {
+        RouteLatency latency = latencies.get(endpoint);
+        return latency == null ? 0 : latency.getErrorCount();
+    }
+
+    // Request counts in consecutive buckets of bucketSeconds, starting at the first second with a request
+    public NavigableMap<Long, Long> timeline(int bucketSeconds) {
+        NavigableMap<Long, Long> buckets = new TreeMap<>();
+        if (requestsPerSecond.isEmpty()) {
+            return buckets;
+        }
+        long first = requestsPerSecond.firstKey();
+        for (Map.Entry<Long, LongAdder> entry : requestsPerSecond.entrySet()) {
+            long bucket = first + (entry.getKey() - first) / bucketSeconds * bucketSeconds;
+            buckets.merge(bucket, entry.getValue().sum(), Long::sum);
+        }
+        return buckets;
+    }
+
+    // Seconds between the first and the last recorded request (at least 1)
+    public long getActiveSeconds() {
+        return requestsPerSecond.isEmpty() ? 1 : requestsPerSecond.lastKey() - requestsPerSecond.firstKey() + 1;
+    }
+
+    // Slowest calls, slowest first
+    public List<Call> slowestCalls() {
+        List<Call> calls;
+        synchronized (slowest) {
+            calls = new ArrayList<>(slowest);
+        }
+        calls.sort(Comparator.comparingLong(Call::getDurationNanos).reversed());
+        return calls;
+    }
+
+    public void reset() {
+        latencies.clear();
+        requestsPerSecond.clear();
+        synchronized (slowest) {
+            slowest.clear();
+            slowestThresholdNanos = 0;
+        }
+    }
+
+    public static final class Call {
+        private final String endpoint;
+        private final long durationNanos;
+        private final int status;
+        private final String testName;
+        private final long timestampMillis;
+
+        private Call(String endpoint, long durationNanos, int status, String testName, long timestampMillis) {
+            this.endpoint = endpoint;
+            this.durationNanos = durationNanos;
+            this.status = status;
+            this.testName = testName;
+            this.timestampMillis = timestampMillis;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        // -1 when no response was received
+        public int getStatus() {
+            return status;
+        }
+
+        public String getTestName() {
+            return testName;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.utilities.TestConfig;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Latency budgets per route from config-<env>.properties (<route> is Endpoint.configKey(), e.g. get_book):
+//   latency.budget.<route>.max.ms             - limit for every single call
+//   latency.budget.<route>.p<50|90|95|99>.ms  - limit for that percentile over the suite (or each test)
+//   latency.budget.default.*                  - used for routes without their own value
+//   latency.budget.mode                       - fail or warn when a budget is exceeded
+//   latency.budget.percentile.scope           - suite or test
+public class LatencyBudgets {
+
+    public enum Mode { FAIL, WARN }
+
+    public enum Scope { SUITE, TEST }
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static LatencyBudgets instance;
+
+    private final Mode mode;
+    private final Scope percentileScope;
+    private final Map<Endpoint, TestConfig.LatencyBudget> budgets = new EnumMap<>(Endpoint.class);
+
+    private LatencyBudgets() {
+        TestConfig config = TestConfig.get();
+        mode = config.getEnum("latency.budget.mode", Mode.class, Mode.WARN);
+        percentileScope = config.getEnum("latency.budget.percentile.scope", Scope.class, Scope.SUITE);
+        for (Endpoint endpoint : Endpoint.values()) {
+            budgets.put(endpoint, config.getLatencyBudget(endpoint));
+        }
+    }
+
+    public static synchronized LatencyBudgets getInstance() {
+        if (instance == null) {
+            instance = new LatencyBudgets();
+        }
+        return instance;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Scope getPercentileScope() {
+        return percentileScope;
+    }
+
+    // Single-call limit in nanoseconds for the endpoint label ("GET /books/{id}"), or 0 when there is none
+    public long maxNanos(String endpointLabel) {
+        TestConfig.LatencyBudget budget = budgetFor(endpointLabel);
+        return budget == null ? 0 : (long) (budget.getMaxMillis() * NANOS_PER_MILLI);
+    }
+
+    // Describes every percentile budget the distribution exceeds; empty when it is within budget
+    public List<String> percentileViolations(String endpointLabel, Histogram histogram) {
+        TestConfig.LatencyBudget budget = budgetFor(endpointLabel);
+        if (budget == null || budget.getPercentileMillis().isEmpty() || histogram.getTotalCount() == 0) {
+            return Collections.emptyList();
+        }
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<Double, Double> limit : budget.getPercentileMillis().entrySet()) {
+            double measured = histogram.getValueAtPercentile(limit.getKey()) / NANOS_PER_MILLI;
+            if (measured > limit.getValue()) {
+                violations.add(String.format("%s p%d=%.2fms exceeds budget %.0fms (%s)", endpointLabel, limit.getKey().intValue(),
+                        measured, limit.getValue(), describe(histogram)));
+            }
+        }
+        return violations;
+    }
+
+    // Measured distribution, e.g. "n=12 p50=20.10ms p90=45.00ms p99=80.02ms max=80.02ms"
+    public static String describe(Histogram histogram) {
+        return String.format("n=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / NANOS_PER_MILLI, histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MILLI, histogram.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private TestConfig.LatencyBudget budgetFor(String endpointLabel) {
+        for (Map.Entry<Endpoint, TestConfig.LatencyBudget> entry : budgets.entrySet()) {
+            if (entry.getKey().label().equals(endpointLabel)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
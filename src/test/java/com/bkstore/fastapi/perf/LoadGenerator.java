@@ -0,0 +1,112 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import io.restassured.response.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model load generator: every route gets its own pacer thread that releases requests on a fixed
+// schedule (1 / targetRps apart), whether or not earlier requests have completed. Requests run on a
+// shared worker pool. Latency is measured from the scheduled start time, so time spent queued behind a
+// slow server is counted instead of silently skipped (coordinated omission correction).
+public class LoadGenerator {
+
+    private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+
+    private final LoadScenario scenario;
+    private final Map<Endpoint, Double> targetRps;
+    private final Duration duration;
+    private final int maxConcurrency;
+
+    public LoadGenerator(LoadScenario scenario, Map<Endpoint, Double> targetRps, Duration duration, int maxConcurrency) {
+        this.scenario = scenario;
+        this.targetRps = new EnumMap<>(targetRps);
+        this.duration = duration;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    // Runs the load for the configured duration and returns the latency statistics per route
+    public Map<Endpoint, RouteLatency> run() throws InterruptedException {
+        Map<Endpoint, RouteLatency> results = new EnumMap<>(Endpoint.class);
+        ExecutorService workers = Executors.newFixedThreadPool(maxConcurrency, namedThreads("load-worker"));
+        List<Thread> pacers = new ArrayList<>();
+
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // let all pacers start together
+        long endNanos = startNanos + duration.toNanos();
+
+        for (Map.Entry<Endpoint, Double> entry : targetRps.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue; // route disabled
+            }
+            RouteLatency latency = new RouteLatency(entry.getKey().label());
+            results.put(entry.getKey(), latency);
+            Thread pacer = new Thread(() -> pace(entry.getKey(), entry.getValue(), latency, workers, startNanos, endNanos),
+                    "load-pacer-" + entry.getKey().configKey());
+            pacer.setDaemon(true);
+            pacers.add(pacer);
+        }
+
+        logger.info("Starting open-model load for " + duration.getSeconds() + "s across " + pacers.size() + " routes with " + maxConcurrency + " workers.");
+        pacers.forEach(Thread::start);
+        for (Thread pacer : pacers) {
+            pacer.join();
+        }
+
+        // Let in-flight and queued requests finish; they are still part of the measured load
+        workers.shutdown();
+        if (!workers.awaitTermination(Math.max(30, duration.getSeconds()), TimeUnit.SECONDS)) {
+            logger.warn("Load workers did not drain in time, " + workers.shutdownNow().size() + " requests were dropped.");
+        }
+        return results;
+    }
+
+    private void pace(Endpoint endpoint, double rps, RouteLatency latency, ExecutorService workers, long startNanos, long endNanos) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        for (long i = 0; ; i++) {
+            long intendedStart = startNanos + i * intervalNanos;
+            if (intendedStart >= endNanos) {
+                return;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            workers.execute(() -> issue(endpoint, latency, intendedStart));
+        }
+    }
+
+    private void issue(Endpoint endpoint, RouteLatency latency, long intendedStart) {
+        long actualStart = System.nanoTime();
+        boolean error;
+        try {
+            Response response = scenario.execute(endpoint);
+            error = response.statusCode() < 200 || response.statusCode() >= 300;
+        } catch (RuntimeException e) {
+            logger.debug("Request to " + endpoint.label() + " failed: " + e.getMessage());
+            error = true;
+        }
+        long end = System.nanoTime();
+        latency.record(end - intendedStart, end - actualStart, error);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.auth.AuthSession;
+import com.bkstore.fastapi.api.auth.TokenManager;
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.UserSignup;
+import com.bkstore.fastapi.api.resilience.RetryPolicy;
+import com.bkstore.fastapi.api.services.AuthService;
+import com.bkstore.fastapi.api.services.BookService;
+import com.bkstore.fastapi.sharding.Shard;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.restassured.RestAssured.given;
+
+// Maps every Endpoint to a single request issued through AuthService / BookService.
+// Data the requests need (a logged-in user, books to read, update and delete) is prepared up front
+// so that the timed requests only ever exercise the route they are attributed to.
+public class LoadScenario {
+
+    private static final Logger logger = LogManager.getLogger(LoadScenario.class);
+    private static final String PASSWORD = "LoadTestPassword123!";
+    private static final String LOAD_USER = "load";
+
+    private final RequestSpecification reqSpec;
+    private final AuthService authService = new AuthService();
+    // No retries: every timed request is one attempt, failures count towards the error rate
+    private final BookService bookService = new BookService(RetryPolicy.NONE);
+
+    // Unique per scenario so concurrent runs against a shared environment never collide
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong createCounter = new AtomicLong();
+
+    private final List<Integer> seededBookIds = new ArrayList<>();
+    private final Queue<Integer> deletableBookIds = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> createdBookIds = new ConcurrentLinkedQueue<>();
+
+    private UserLogin loginPayload;
+    private String authToken;
+
+    public LoadScenario(RequestSpecification reqSpec) {
+        this.reqSpec = reqSpec;
+    }
+
+    // Obtains the shared load user session, then creates the books used by GET/PUT (seedBooks)
+    // and one book per planned DELETE request (deletableBooks)
+    public void prepare(int seedBooks, int deletableBooks) {
+        // Stale credentials would turn every timed POST /login into an error
+        AuthSession session = TokenManager.getInstance().getLoginSession(reqSpec, LOAD_USER);
+        loginPayload = session.toLogin();
+        authToken = session.getAccessToken();
+
+        for (int i = 0; i < seedBooks; i++) {
+            seededBookIds.add(createBookForSetup("seed", i));
+        }
+        for (int i = 0; i < deletableBooks; i++) {
+            deletableBookIds.add(createBookForSetup("delete", i));
+        }
+        logger.info("Load scenario prepared: user " + loginPayload.getEmail() + ", " + seedBooks + " seeded books, " + deletableBooks + " deletable books.");
+    }
+
+    // Issues one request against the given endpoint and returns its response
+    public Response execute(Endpoint endpoint) {
+        switch (endpoint) {
+            case HEALTH:
+                return given().spec(reqSpec).when().get(endpoint.getPath());
+            case SIGNUP:
+                // Same id and email scheme as every other signup, so ids stay within this shard's range
+                UserSignup signup = new UserSignup(Shard.userId(), Shard.uniqueEmail("load_signup_" + runId), PASSWORD);
+                return authService.signupUser(reqSpec, signup);
+            case LOGIN:
+                return authService.loginUser(reqSpec, loginPayload);
+            case LIST_BOOKS:
+                return bookService.getAllBooks(reqSpec, authToken);
+            case CREATE_BOOK:
+                Response created = bookService.createBook(reqSpec, newBook("create", createCounter.incrementAndGet()), authToken);
+                if (created.statusCode() == 200) {
+                    createdBookIds.add(created.path("id"));
+                }
+                return created;
+            case GET_BOOK:
+                return bookService.getBook(reqSpec, randomSeededBook(), authToken);
+            case UPDATE_BOOK:
+                int bookId = randomSeededBook();
+                Book update = newBook("update", bookId);
+                update.setId(bookId);
+                return bookService.updateBook(reqSpec, bookId, update, authToken);
+            case DELETE_BOOK:
+                Integer deletableId = deletableBookIds.poll();
+                if (deletableId == null) {
+                    throw new IllegalStateException("No prepared books left to delete, raise the deletable book count");
+                }
+                return bookService.deleteBook(reqSpec, deletableId, authToken);
+            default:
+                throw new IllegalArgumentException("Unsupported endpoint: " + endpoint);
+        }
+    }
+
+    // Removes every book this scenario created (not timed)
+    public void cleanup() {
+        List<Integer> leftovers = new ArrayList<>(seededBookIds);
+        leftovers.addAll(deletableBookIds);
+        leftovers.addAll(createdBookIds);
+        for (Integer bookId : leftovers) {
+            bookService.deleteBook(reqSpec, bookId, authToken);
+        }
+        logger.info("Load scenario cleanup removed " + leftovers.size() + " books.");
+    }
+
+    private int createBookForSetup(String kind, int index) {
+        Response response = bookService.createBook(reqSpec, newBook(kind, index), authToken);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Creating " + kind + " book failed with status " + response.statusCode() + ": " + response.asString());
+        }
+        return response.path("id");
+    }
+
+    private int randomSeededBook() {
+        if (seededBookIds.isEmpty()) {
+            throw new IllegalStateException("No seeded books available, raise load.seed.books");
+        }
+        return seededBookIds.get(ThreadLocalRandom.current().nextInt(seededBookIds.size()));
+    }
+
+    private Book newBook(String kind, long index) {
+        String name = "Load " + kind + " book " + runId + "-" + index;
+        return new Book(name, "load_user_" + runId, 1900 + (int) (index % 125), "Summary of " + name);
+    }
+}
@@ -0,0 +1,87 @@
+package com.bkstore.fastapi.perf;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// One-sided Mann-Whitney U test: are the latencies in "current" stochastically larger than in "baseline"?
+// Works directly on histograms, all values in one histogram bucket count as ties, so the cost depends on the
+// number of distinct buckets and not on the number of calls. Uses the normal approximation with tie and
+// continuity correction, which is accurate for the sample sizes a suite produces (tens of calls and up).
+public final class MannWhitneyU {
+
+    private MannWhitneyU() {
+    }
+
+    public static Result test(Histogram current, Histogram baseline) {
+        // Value -> {count in current, count in baseline}, ascending
+        TreeMap<Long, long[]> counts = new TreeMap<>();
+        for (HistogramIterationValue value : current.recordedValues()) {
+            counts.computeIfAbsent(value.getValueIteratedTo(), key -> new long[2])[0] += value.getCountAtValueIteratedTo();
+        }
+        for (HistogramIterationValue value : baseline.recordedValues()) {
+            counts.computeIfAbsent(value.getValueIteratedTo(), key -> new long[2])[1] += value.getCountAtValueIteratedTo();
+        }
+
+        double n1 = current.getTotalCount();
+        double n2 = baseline.getTotalCount();
+        double n = n1 + n2;
+        if (n1 == 0 || n2 == 0) {
+            return new Result(0, 0.5, 1.0);
+        }
+
+        // Rank sum of the current sample, tied values share their average rank
+        double rankSumCurrent = 0;
+        double tieTerm = 0;
+        double ranked = 0;
+        for (Map.Entry<Long, long[]> entry : counts.entrySet()) {
+            double ties = entry.getValue()[0] + entry.getValue()[1];
+            rankSumCurrent += entry.getValue()[0] * (ranked + (ties + 1) / 2);
+            tieTerm += ties * ties * ties - ties;
+            ranked += ties;
+        }
+
+        double u = rankSumCurrent - n1 * (n1 + 1) / 2;
+        double variance = n1 * n2 / 12 * ((n + 1) - tieTerm / (n * (n - 1)));
+        double z = variance > 0 ? (u - n1 * n2 / 2 - 0.5) / Math.sqrt(variance) : 0;
+        return new Result(u, u / (n1 * n2), 1 - normalCdf(z));
+    }
+
+    // Abramowitz and Stegun 7.1.26, absolute error below 1.5e-7
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+
+    public static final class Result {
+        private final double u;
+        private final double effectSize;
+        private final double pValue;
+
+        private Result(double u, double effectSize, double pValue) {
+            this.u = u;
+            this.effectSize = effectSize;
+            this.pValue = pValue;
+        }
+
+        public double getU() {
+            return u;
+        }
+
+        // Vargha-Delaney A: probability that a current call is slower than a baseline call (0.5 = no difference,
+        // 0.56 small, 0.64 medium, 0.71 large)
+        public double getEffectSize() {
+            return effectSize;
+        }
+
+        // Probability of a shift at least this large towards slower calls if nothing changed
+        public double getPValue() {
+            return pValue;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.EnvironmentManager;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Per-endpoint performance history and regression gate.
+// Every suite run appends one JSON line to <perf.history.dir>/<env>.jsonl with the git revision and, per endpoint,
+// the throughput and the full latency histogram (compressed, a few hundred bytes); each shard of a sharded run keeps
+// its own file, <env>-shard-<i>-of-<n>.jsonl. At suite end each endpoint is
+// compared with the merged histograms of the last perf.baseline.runs runs of the same suite against the same target,
+// from other revisions, using a one-sided Mann-Whitney U test. A regression needs both p < perf.regression.alpha and
+// an effect size of at least perf.regression.min.effect, so a large sample cannot flag a negligible shift.
+// Runs that regressed are kept in the history but never become part of a baseline. After an intended slowdown, a run
+// with perf.baseline.reset=true is not compared and starts a new baseline: older runs are no longer used.
+public class PerformanceBaseline {
+
+    public enum Verdict { REGRESSION, OK, NO_BASELINE, TOO_FEW_SAMPLES }
+
+    private static final Logger logger = LogManager.getLogger(PerformanceBaseline.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    // Comparison of the last evaluated suite, for the reporters
+    private static volatile List<Comparison> lastComparisons = Collections.emptyList();
+
+    private final File file;
+    private final int baselineRuns = ConfigReader.getIntProperty("perf.baseline.runs", 10);
+    private final int minBaselineRuns = ConfigReader.getIntProperty("perf.baseline.min.runs", 3);
+    private final int minSamples = ConfigReader.getIntProperty("perf.baseline.min.samples", 5);
+    private final int maxRuns = ConfigReader.getIntProperty("perf.history.max.runs", 200);
+    private final double alpha = ConfigReader.getDoubleProperty("perf.regression.alpha", 0.01);
+    private final double minEffect = ConfigReader.getDoubleProperty("perf.regression.min.effect", 0.64);
+    private final boolean reset = Boolean.parseBoolean(ConfigReader.getProperty("perf.baseline.reset", "false"));
+
+    public PerformanceBaseline() {
+        this(new File(ConfigReader.getProperty("perf.history.dir", ".cache/perf-history"), EnvironmentManager.getEnvironment() + Shard.fileSuffix() + ".jsonl"));
+    }
+
+    public PerformanceBaseline(File file) {
+        this.file = file;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.getProperty("perf.history.enabled", "true"));
+    }
+
+    public static List<Comparison> lastComparisons() {
+        return lastComparisons;
+    }
+
+    // Compares the suite's endpoint latencies with the baseline, then appends them to the history
+    public List<Comparison> evaluate(String suiteName, Map<String, Histogram> current, long activeSeconds) {
+        String target = target();
+        String revision = gitRevision();
+        List<JsonNode> history = readHistory();
+
+        // Newest first: the last baselineRuns eligible runs, back to the latest reset of this suite and target
+        List<JsonNode> baseline = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0 && baseline.size() < baselineRuns && !reset; i--) {
+            JsonNode run = history.get(i);
+            if (!suiteName.equals(run.path("suite").asText()) || !target.equals(run.path("target").asText())) {
+                continue;
+            }
+            if (!revision.equals(run.path("revision").asText()) && !run.path("regressed").asBoolean()) {
+                baseline.add(run);
+            }
+            if (run.path("reset").asBoolean()) {
+                break;
+            }
+        }
+        if (reset) {
+            logger.info("perf.baseline.reset=true: this run of " + suiteName + " is not compared and starts a new baseline.");
+        }
+
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : current.entrySet()) {
+            Comparison comparison = compare(entry.getKey(), entry.getValue(), activeSeconds, baseline);
+            logger.info("Baseline " + comparison.verdict + ": " + comparison.describe());
+            comparisons.add(comparison);
+        }
+        lastComparisons = Collections.unmodifiableList(comparisons);
+
+        boolean regressed = comparisons.stream().anyMatch(comparison -> comparison.verdict == Verdict.REGRESSION);
+        append(history, suiteName, target, revision, regressed, current, activeSeconds);
+        return comparisons;
+    }
+
+    private Comparison compare(String endpoint, Histogram histogram, long activeSeconds, List<JsonNode> baseline) {
+        Histogram merged = null;
+        double baselineThroughput = 0;
+        int runs = 0;
+        for (JsonNode run : baseline) {
+            JsonNode node = run.path("endpoints").path(endpoint);
+            if (node.isMissingNode()) {
+                continue;
+            }
+            Histogram past = decode(node.path("histogram").asText());
+            if (past == null) {
+                continue;
+            }
+            if (merged == null) {
+                merged = past.copy();
+            } else {
+                merged.add(past);
+            }
+            baselineThroughput += node.path("throughputPerSecond").asDouble();
+            runs++;
+        }
+
+        Comparison comparison = new Comparison(endpoint, histogram, histogram.getTotalCount() / (double) Math.max(1, activeSeconds));
+        comparison.baselineRuns = runs;
+        if (runs < minBaselineRuns) {
+            comparison.verdict = Verdict.NO_BASELINE;
+            return comparison;
+        }
+        comparison.baseline = merged;
+        comparison.baselineThroughputPerSecond = baselineThroughput / runs;
+        if (histogram.getTotalCount() < minSamples || merged.getTotalCount() < minSamples) {
+            comparison.verdict = Verdict.TOO_FEW_SAMPLES;
+            return comparison;
+        }
+        comparison.test = MannWhitneyU.test(histogram, merged);
+        comparison.verdict = comparison.test.getPValue() < alpha && comparison.test.getEffectSize() >= minEffect
+                ? Verdict.REGRESSION : Verdict.OK;
+        return comparison;
+    }
+
+    private List<JsonNode> readHistory() {
+        List<JsonNode> runs = new ArrayList<>();
+        if (!file.exists()) {
+            return runs;
+        }
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    runs.add(mapper.readTree(line));
+                } catch (IOException e) {
+                    // A run interrupted while writing leaves a partial last line
+                    logger.warn("Skipping unreadable line in " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read performance history " + file + ": " + e.getMessage());
+        }
+        return runs;
+    }
+
+    private void append(List<JsonNode> history, String suiteName, String target, String revision, boolean regressed,
+                        Map<String, Histogram> current, long activeSeconds) {
+        ObjectNode run = mapper.createObjectNode();
+        run.put("timestamp", System.currentTimeMillis());
+        run.put("revision", revision);
+        run.put("environment", EnvironmentManager.getEnvironment());
+        run.put("suite", suiteName);
+        run.put("target", target);
+        run.put("regressed", regressed);
+        run.put("reset", reset);
+        ObjectNode endpoints = run.putObject("endpoints");
+        for (Map.Entry<String, Histogram> entry : current.entrySet()) {
+            Histogram histogram = entry.getValue();
+            ObjectNode endpoint = endpoints.putObject(entry.getKey());
+            endpoint.put("count", histogram.getTotalCount());
+            endpoint.put("throughputPerSecond", histogram.getTotalCount() / (double) Math.max(1, activeSeconds));
+            endpoint.put("p50Millis", histogram.getValueAtPercentile(50) / NANOS_PER_MILLI);
+            endpoint.put("p99Millis", histogram.getValueAtPercentile(99) / NANOS_PER_MILLI);
+            endpoint.put("histogram", encode(histogram));
+        }
+
+        file.getParentFile().mkdirs();
+        try {
+            if (history.size() >= maxRuns) {
+                // Rewrite with the newest maxRuns - 1 runs so the file does not grow forever
+                List<String> kept = new ArrayList<>();
+                for (JsonNode old : history.subList(history.size() - maxRuns + 1, history.size())) {
+                    kept.add(mapper.writeValueAsString(old));
+                }
+                Files.write(file.toPath(), kept, StandardCharsets.UTF_8);
+            }
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(mapper.writeValueAsString(run));
+                writer.write('\n');
+            }
+            logger.info("Performance history for revision " + revision + " appended to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("Could not write performance history " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Runs against the in-JVM stub are never compared with runs against a real server
+    private static String target() {
+        return Boolean.parseBoolean(ConfigReader.getProperty("stub.enabled", "false")) ? "stub" : ConfigReader.getProperty("base.uri", "unknown");
+    }
+
+    // CI provides the commit; locally ask git, marking uncommitted changes
+    static String gitRevision() {
+        for (String variable : new String[]{"GIT_COMMIT", "GITHUB_SHA", "CI_COMMIT_SHA"}) {
+            String value = System.getenv(variable);
+            if (value != null && !value.isEmpty()) {
+                return value.length() > 12 ? value.substring(0, 12) : value;
+            }
+        }
+        String head = git("rev-parse", "--short=12", "HEAD");
+        if (head == null || head.isEmpty()) {
+            return "unknown";
+        }
+        String changes = git("status", "--porcelain", "--untracked-files=no");
+        return changes == null || changes.isEmpty() ? head : head + "-dirty";
+    }
+
+    private static String git(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        Collections.addAll(command, args);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String out;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                out = reader.lines().collect(Collectors.joining("\n"));
+            }
+            if (!process.waitFor(10, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                return null;
+            }
+            return out.trim();
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    // Returns null for a corrupt entry, which is skipped like an unreadable line in readHistory
+    private Histogram decode(String encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+        } catch (Exception e) {
+            logger.warn("Skipping corrupt histogram in " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static final class Comparison {
+        private final String endpoint;
+        private final Histogram current;
+        private final double throughputPerSecond;
+        private Histogram baseline;
+        private double baselineThroughputPerSecond;
+        private int baselineRuns;
+        private MannWhitneyU.Result test;
+        private Verdict verdict;
+
+        private Comparison(String endpoint, Histogram current, double throughputPerSecond) {
+            this.endpoint = endpoint;
+            this.current = current;
+            this.throughputPerSecond = throughputPerSecond;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        public int getBaselineRuns() {
+            return baselineRuns;
+        }
+
+        public double getThroughputPerSecond() {
+            return throughputPerSecond;
+        }
+
+        public double getBaselineThroughputPerSecond() {
+            return baselineThroughputPerSecond;
+        }
+
+        // Current and baseline percentiles in milliseconds; NaN for the baseline when there is none
+        public double currentMillis(double percentile) {
+            return current.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+        }
+
+        public double baselineMillis(double percentile) {
+            return baseline == null ? Double.NaN : baseline.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+        }
+
+        // NaN unless the test was run
+        public double getPValue() {
+            return test == null ? Double.NaN : test.getPValue();
+        }
+
+        public double getEffectSize() {
+            return test == null ? Double.NaN : test.getEffectSize();
+        }
+
+        // e.g. "GET /books/ p50 12.40ms -> 15.10ms, p99 30.02ms -> 41.00ms, p=0.0003, A=0.71 (10 runs)"
+        public String describe() {
+            return String.format("%s p50 %.2fms -> %.2fms, p99 %.2fms -> %.2fms, p=%.4f, A=%.2f (%d runs)", endpoint,
+                    baselineMillis(50), currentMillis(50), baselineMillis(99), currentMillis(99), getPValue(),
+                    getEffectSize(), baselineRuns);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("endpoint", endpoint);
+            map.put("verdict", verdict.name());
+            map.put("baselineRuns", baselineRuns);
+            map.put("p50Millis", currentMillis(50));
+            map.put("p99Millis", currentMillis(99));
+            map.put("throughputPerSecond", throughputPerSecond);
+            if (baseline != null) {
+                map.put("baselineP50Millis", baselineMillis(50));
+                map.put("baselineP99Millis", baselineMillis(99));
+                map.put("baselineThroughputPerSecond", baselineThroughputPerSecond);
+            }
+            if (test != null) {
+                map.put("pValue", test.getPValue());
+                map.put("effectSize", test.getEffectSize());
+            }
+            return map;
+        }
+    }
+}
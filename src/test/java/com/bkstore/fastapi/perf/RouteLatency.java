@@ -0,0 +1,91 @@
+package com.bkstore.fastapi.perf;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency statistics for a single route, safe to record into from many threads at once.
+// Two distributions are kept:
+//  - response time: measured from the moment the request was *supposed* to be sent (corrects coordinated omission)
+//  - service time: measured from the moment the request was actually sent
+public class RouteLatency {
+
+    // Track values from 1 microsecond up to 1 hour with 3 significant digits
+    private static final long LOWEST_TRACKABLE_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+    private final Recorder responseTimeRecorder = newRecorder();
+    private final Recorder serviceTimeRecorder = newRecorder();
+    private final Histogram responseTimeTotal = newHistogram();
+    private final Histogram serviceTimeTotal = newHistogram();
+    private final Histogram responseTimeSinceLastTake = newHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    private Histogram responseTimeInterval;
+    private Histogram serviceTimeInterval;
+
+    public RouteLatency(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long responseTimeNanos, long serviceTimeNanos, boolean error) {
+        responseTimeRecorder.recordValue(clamp(responseTimeNanos));
+        serviceTimeRecorder.recordValue(clamp(serviceTimeNanos));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    // Returns a copy of everything recorded so far (coordinated-omission corrected)
+    public synchronized Histogram responseTimeSnapshot() {
+        drainRecorders();
+        return responseTimeTotal.copy();
+    }
+
+    // Returns a copy of everything recorded so far (raw service time)
+    public synchronized Histogram serviceTimeSnapshot() {
+        drainRecorders();
+        return serviceTimeTotal.copy();
+    }
+
+    // Returns the response times recorded since the previous call (or since creation), for periodic snapshots
+    public synchronized Histogram takeResponseTimeInterval() {
+        drainRecorders();
+        Histogram interval = responseTimeSinceLastTake.copy();
+        responseTimeSinceLastTake.reset();
+        return interval;
+    }
+
+    // Moves the values recorded since the last call into the cumulative histograms without blocking writers
+    private void drainRecorders() {
+        responseTimeInterval = responseTimeRecorder.getIntervalHistogram(responseTimeInterval);
+        serviceTimeInterval = serviceTimeRecorder.getIntervalHistogram(serviceTimeInterval);
+        responseTimeTotal.add(responseTimeInterval);
+        serviceTimeTotal.add(serviceTimeInterval);
+        responseTimeSinceLastTake.add(responseTimeInterval);
+    }
+
+    private static long clamp(long nanos) {
+        return Math.min(Math.max(nanos, LOWEST_TRACKABLE_NANOS), HIGHEST_TRACKABLE_NANOS);
+    }
+
+    static Histogram newHistogram() {
+        return new Histogram(LOWEST_TRACKABLE_NANOS, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+
+    private static Recorder newRecorder() {
+        return new Recorder(LOWEST_TRACKABLE_NANOS, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+}
@@ -0,0 +1,155 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.auth.TokenManager;
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.endpoints.Routes;
+import com.bkstore.fastapi.api.payloads.AuthToken;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.resilience.RetryPolicy;
+import com.bkstore.fastapi.api.services.AuthService;
+import com.bkstore.fastapi.api.services.BookService;
+import com.bkstore.fastapi.sharding.Shard;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static io.restassured.RestAssured.given;
+
+// Gets the API and the client ready before anything is measured (see ReadinessGateListener):
+//   awaitReady polls GET /health until the service answers 200 several times in a row, backing off after failures;
+//   warmUp calls every Endpoint round after round, so the client's JIT, the connection pool and the server's caches
+//   are warm when the first measured request goes out.
+// The spec passed in must not carry timing, budget or recording filters: that is what keeps these calls out of
+// EndpointMetrics, the latency budgets, the performance baseline and the traffic log.
+public class ServiceWarmUp {
+
+    private static final Logger logger = LogManager.getLogger(ServiceWarmUp.class);
+    private static final String WARMUP_USER = "warmup";
+
+    private final RequestSpecification reqSpec;
+    private final AuthService authService = new AuthService();
+    private final BookService bookService = new BookService(RetryPolicy.NONE);
+
+    public ServiceWarmUp(RequestSpecification reqSpec) {
+        this.reqSpec = reqSpec;
+    }
+
+    // Returns once requiredSuccesses health checks in a row returned 200. The wait after a failure starts at
+    // initialBackoff and doubles up to maxBackoff; successes are spaced by initialBackoff. Throws after timeout.
+    public void awaitReady(int requiredSuccesses, Duration initialBackoff, Duration maxBackoff, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long backoffMillis = initialBackoff.toMillis();
+        int successes = 0;
+        int attempts = 0;
+        String lastProblem = "no health check completed";
+        while (true) {
+            attempts++;
+            try {
+                Response response = given().spec(reqSpec).when().get(Routes.GET_HEALTH);
+                if (response.statusCode() == 200) {
+                    successes++;
+                    backoffMillis = initialBackoff.toMillis();
+                    if (successes >= requiredSuccesses) {
+                        logger.info("API ready after " + attempts + " health checks (" + successes + " successes in a row).");
+                        return;
+                    }
+                } else {
+                    successes = 0;
+                    lastProblem = "status " + response.statusCode();
+                }
+            } catch (Exception e) { // RestAssured rethrows connection failures (IOException) undeclared
+                successes = 0;
+                lastProblem = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            long sleepMillis = successes > 0 ? initialBackoff.toMillis() : backoffMillis;
+            if (System.nanoTime() + sleepMillis * 1_000_000L > deadline) {
+                throw new RuntimeException("API not ready after " + timeout.getSeconds() + "s and " + attempts
+                        + " health checks, last problem: " + lastProblem);
+            }
+            if (successes == 0) {
+                logger.info("API not ready yet (" + lastProblem + "), checking again in " + sleepMillis + " ms.");
+                backoffMillis = Math.min(backoffMillis * 2, maxBackoff.toMillis());
+            }
+            sleep(sleepMillis);
+        }
+    }
+
+    // Runs the given number of rounds over every route: health, login, list, create, get, update and delete of a
+    // throwaway book. The warm-up logs in as the TokenManager's "warmup" user, signed up once per JVM (the token cache
+    // keeps no password, so a cached session cannot log in; the API cannot delete users). Failed calls are logged and
+    // counted, but do not stop the warm-up; the tests themselves report a broken route.
+    public void warmUp(int rounds) {
+        if (rounds <= 0) {
+            return;
+        }
+        Map<Endpoint, Integer> failures = new EnumMap<>(Endpoint.class);
+        UserLogin login = TokenManager.getInstance().getLoginSession(reqSpec, WARMUP_USER).toLogin();
+
+        long firstRoundNanos = 0;
+        long lastRoundNanos = 0;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            round(round, login, failures);
+            lastRoundNanos = System.nanoTime() - start;
+            if (round == 1) {
+                firstRoundNanos = lastRoundNanos;
+            }
+        }
+        logger.info("Warm-up finished: " + rounds + " rounds, first round "
+                + firstRoundNanos / 1_000_000 + " ms, last round " + lastRoundNanos / 1_000_000 + " ms"
+                + (failures.isEmpty() ? "." : ", failed calls " + failures + "."));
+    }
+
+    private void round(int round, UserLogin userLogin, Map<Endpoint, Integer> failures) {
+        call(Endpoint.HEALTH, failures, () -> given().spec(reqSpec).when().get(Routes.GET_HEALTH));
+        Response login = call(Endpoint.LOGIN, failures, () -> authService.loginUser(reqSpec, userLogin));
+        if (login == null) {
+            return;
+        }
+        String token = PayloadCodec.read(login, AuthToken.class).getAccessToken();
+        call(Endpoint.LIST_BOOKS, failures, () -> bookService.getBooksPage(reqSpec, 0, 10, token));
+        String name = Shard.bookName("Warm-up book " + round);
+        Book book = new Book(name, "warmup_user", 2000 + round % 25, "Summary of " + name);
+        Response created = call(Endpoint.CREATE_BOOK, failures, () -> bookService.createBook(reqSpec, book, token));
+        if (created == null) {
+            return;
+        }
+        int bookId = created.path("id");
+        call(Endpoint.GET_BOOK, failures, () -> bookService.getBook(reqSpec, bookId, token));
+        Book update = new Book(bookId, name + " (updated)", book.getAuthor(), book.getPublished_year(), "Updated summary of " + name);
+        call(Endpoint.UPDATE_BOOK, failures, () -> bookService.updateBook(reqSpec, bookId, update, token));
+        call(Endpoint.DELETE_BOOK, failures, () -> bookService.deleteBook(reqSpec, bookId, token));
+    }
+
+    // Returns the response, or null (counting a failure) when the call threw or did not return 2xx
+    private static Response call(Endpoint endpoint, Map<Endpoint, Integer> failures, Supplier<Response> request) {
+        try {
+            Response response = request.get();
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                return response;
+            }
+            logger.debug("Warm-up call " + endpoint.label() + " returned status " + response.statusCode());
+        } catch (Exception e) {
+            logger.debug("Warm-up call " + endpoint.label() + " failed: " + e.getMessage());
+        }
+        failures.merge(endpoint, 1, Integer::sum);
+        return null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the API to become ready", e);
+        }
+    }
+}
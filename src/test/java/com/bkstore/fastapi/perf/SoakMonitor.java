@@ -0,0 +1,365 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.apache.http.pool.PoolStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Periodic snapshots of a soak run (see SoakRunner) and drift detection over them.
+// Every snapshot covers the window since the previous one: per-route latency percentiles and error rate, client heap
+// (after a full GC, so it measures what the client keeps alive rather than garbage), pooled connections and threads.
+// Each snapshot is appended to a JSON lines file right away, so an aborted run keeps everything up to its last window.
+// The first warmupWindows windows are ignored; the next baselineWindows form the baseline, and from then on the latest
+// baselineWindows windows are compared with it:
+//   latency     one-sided Mann-Whitney U test, drift needs p < alpha and effect size A >= minEffect
+//   error rate  one-sided two-proportion z-test, drift needs p < alpha and a rise of at least minErrorRateIncrease
+//   heap        least-squares trend of the live heap, leak needs p < alpha, growth above maxHeapGrowthMbPerHour and,
+//               so that short runs do not extrapolate noise, at least minHeapGrowthMb along the trend so far
+//   connections a request waiting for a pooled connection (pool exhausted), or a significant upward trend of leased
+//               connections beyond the baseline's highest count (connections not returned)
+//   flows       flows dropped because the client's queue was full (the server cannot keep up with the rate)
+// Each kind of drift is reported once per route, when it is first detected.
+public class SoakMonitor {
+
+    private static final Logger logger = LogManager.getLogger(SoakMonitor.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final Map<Endpoint, RouteLatency> routes = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Long> errorsAtLastSnapshot = new EnumMap<>(Endpoint.class);
+    private final LongAdder droppedFlows = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    private final int warmupWindows;
+    private final int baselineWindows;
+    private final double alpha;
+    private final double minEffect;
+    private final double minErrorRateIncrease;
+    private final double maxHeapGrowthMbPerHour;
+    private final double minHeapGrowthMb;
+
+    private final File file;
+    private final BufferedWriter writer;
+
+    // Baseline windows merged per route, and a sliding set of the latest windows; older windows are not kept, so the
+    // monitor's own memory does not grow with the length of the run
+    private final Map<Endpoint, Window> baseline = new EnumMap<>(Endpoint.class);
+    private final Deque<Map<Endpoint, Window>> recent = new ArrayDeque<>();
+    // Elapsed hours -> live heap MB / leased connections, every window after the warm-up
+    private final List<double[]> heapSeries = new ArrayList<>();
+    private final List<double[]> leasedSeries = new ArrayList<>();
+    private int baselineMaxLeased;
+    private int windows;
+    private final Map<String, String> drifts = new LinkedHashMap<>();
+
+    public SoakMonitor(File file, int warmupWindows, int baselineWindows, double alpha, double minEffect,
+                       double minErrorRateIncrease, double maxHeapGrowthMbPerHour, double minHeapGrowthMb) {
+        this.file = file;
+        this.warmupWindows = warmupWindows;
+        this.baselineWindows = baselineWindows;
+        this.alpha = alpha;
+        this.minEffect = minEffect;
+        this.minErrorRateIncrease = minErrorRateIncrease;
+        this.maxHeapGrowthMbPerHour = maxHeapGrowthMbPerHour;
+        this.minHeapGrowthMb = minHeapGrowthMb;
+        for (Endpoint endpoint : SoakRunner.ROUTES) {
+            routes.put(endpoint, new RouteLatency(endpoint.label()));
+            errorsAtLastSnapshot.put(endpoint, 0L);
+        }
+        try {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create soak results file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void record(Endpoint endpoint, long responseTimeNanos, long serviceTimeNanos, boolean error) {
+        routes.get(endpoint).record(responseTimeNanos, serviceTimeNanos, error);
+    }
+
+    public void flowDropped() {
+        droppedFlows.increment();
+    }
+
+    // Drift detected so far, keyed by route and kind (e.g. "create_book latency"), in the order it was found
+    public synchronized Map<String, String> getDrifts() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(drifts));
+    }
+
+    // Closes the window since the previous snapshot; never throws, so a scheduled executor keeps calling it
+    public synchronized void snapshot() {
+        try {
+            takeSnapshot();
+        } catch (RuntimeException e) {
+            logger.error("Soak snapshot failed: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void close() {
+        ObjectNode summary = mapper.createObjectNode();
+        summary.put("type", "summary");
+        summary.put("elapsedSeconds", Math.round(elapsedHours() * 3600));
+        summary.put("windows", windows);
+        summary.putPOJO("drift", new ArrayList<>(drifts.values()));
+        write(summary);
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Could not close soak results file " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void takeSnapshot() {
+        double hours = elapsedHours();
+        Map<Endpoint, Window> current = new EnumMap<>(Endpoint.class);
+        for (Map.Entry<Endpoint, RouteLatency> route : routes.entrySet()) {
+            long errors = route.getValue().getErrorCount();
+            current.put(route.getKey(), new Window(route.getValue().takeResponseTimeInterval(),
+                    errors - errorsAtLastSnapshot.get(route.getKey())));
+            errorsAtLastSnapshot.put(route.getKey(), errors);
+        }
+        long dropped = droppedFlows.sumThenReset();
+
+        // An explicit full GC once per window: the heap then holds only live objects, which is what grows with a leak
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        double liveHeapMb = memory.getHeapMemoryUsage().getUsed() / BYTES_PER_MB;
+        PoolStats pool = HttpConnectionPool.getInstance().getPoolStats();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        windows++;
+        List<String> found = new ArrayList<>();
+        if (dropped > 0) {
+            found.add(drift("client queue", dropped + " flows dropped in window " + windows
+                    + ", the server does not keep up with the soak rate"));
+        }
+        if (pool.getPending() > 0) {
+            found.add(drift("connection pool", "pool exhausted in window " + windows + ": " + pool.getPending()
+                    + " requests waiting, " + pool.getLeased() + " of " + pool.getMax() + " connections leased"));
+        }
+        if (windows > warmupWindows) {
+            heapSeries.add(new double[]{hours, liveHeapMb});
+            leasedSeries.add(new double[]{hours, pool.getLeased()});
+            if (windows <= warmupWindows + baselineWindows) {
+                current.forEach((endpoint, window) -> baseline.merge(endpoint, window, Window::plus));
+                baselineMaxLeased = Math.max(baselineMaxLeased, pool.getLeased());
+            } else {
+                recent.addLast(current);
+                if (recent.size() > baselineWindows) {
+                    recent.removeFirst();
+                }
+                if (recent.size() == baselineWindows) {
+                    found.addAll(detectDrift());
+                }
+            }
+        }
+
+        ObjectNode line = mapper.createObjectNode();
+        line.put("type", "snapshot");
+        line.put("window", windows);
+        line.put("elapsedSeconds", Math.round(hours * 3600));
+        line.put("phase", windows <= warmupWindows ? "warmup" : windows <= warmupWindows + baselineWindows ? "baseline" : "compare");
+        ObjectNode routeNodes = line.putObject("routes");
+        current.forEach((endpoint, window) -> {
+            ObjectNode node = routeNodes.putObject(endpoint.configKey());
+            node.put("count", window.latency.getTotalCount());
+            node.put("errors", window.errors);
+            node.put("errorRate", window.errorRate());
+            node.put("p50Ms", millis(window.latency, 50));
+            node.put("p90Ms", millis(window.latency, 90));
+            node.put("p99Ms", millis(window.latency, 99));
+            node.put("maxMs", window.latency.getMaxValue() / NANOS_PER_MILLI);
+        });
+        line.put("liveHeapMb", liveHeapMb);
+        line.put("heapCommittedMb", memory.getHeapMemoryUsage().getCommitted() / BYTES_PER_MB);
+        ObjectNode connections = line.putObject("connections");
+        connections.put("leased", pool.getLeased());
+        connections.put("available", pool.getAvailable());
+        connections.put("pending", pool.getPending());
+        connections.put("max", pool.getMax());
+        line.put("threads", threads);
+        line.put("droppedFlows", dropped);
+        line.putPOJO("drift", found);
+        write(line);
+        logger.info(String.format("Soak window %d (%.1f min): %s | heap %.1f MB | connections %d leased, %d idle | threads %d",
+                windows, hours * 60, summary(current), liveHeapMb, pool.getLeased(), pool.getAvailable(), threads));
+    }
+
+    private List<String> detectDrift() {
+        List<String> found = new ArrayList<>();
+        for (Endpoint endpoint : routes.keySet()) {
+            Window before = baseline.get(endpoint);
+            Window now = recent.stream().map(snapshot -> snapshot.get(endpoint)).reduce(Window::plus).orElseThrow(IllegalStateException::new);
+            if (before.latency.getTotalCount() > 0 && now.latency.getTotalCount() > 0) {
+                MannWhitneyU.Result test = MannWhitneyU.test(now.latency, before.latency);
+                if (test.getPValue() < alpha && test.getEffectSize() >= minEffect) {
+                    found.add(drift(endpoint.configKey() + " latency", String.format(
+                            "%s latency drifted: p50 %.1f -> %.1f ms, p99 %.1f -> %.1f ms (p=%.2g, A=%.2f)", endpoint.label(),
+                            millis(before.latency, 50), millis(now.latency, 50), millis(before.latency, 99), millis(now.latency, 99),
+                            test.getPValue(), test.getEffectSize())));
+                }
+            }
+            double errorPValue = increasePValue(now.errors, now.latency.getTotalCount(), before.errors, before.latency.getTotalCount());
+            if (errorPValue < alpha && now.errorRate() - before.errorRate() >= minErrorRateIncrease) {
+                found.add(drift(endpoint.configKey() + " errors", String.format("%s error rate rose: %.2f%% -> %.2f%% (p=%.2g)",
+                        endpoint.label(), before.errorRate() * 100, now.errorRate() * 100, errorPValue)));
+            }
+        }
+        Trend heap = Trend.of(heapSeries);
+        double heapGrowthMb = heap.slope * (heapSeries.get(heapSeries.size() - 1)[0] - heapSeries.get(0)[0]);
+        if (heap.pValue < alpha && heap.slope > maxHeapGrowthMbPerHour && heapGrowthMb >= minHeapGrowthMb) {
+            found.add(drift("client heap", String.format("client live heap grows %.1f MB/h, %.1f MB so far (p=%.2g), a likely "
+                    + "client-side leak", heap.slope, heapGrowthMb, heap.pValue)));
+        }
+        Trend leased = Trend.of(leasedSeries);
+        double latestLeased = leasedSeries.get(leasedSeries.size() - 1)[1];
+        if (leased.pValue < alpha && leased.slope > 0 && latestLeased > baselineMaxLeased) {
+            found.add(drift("connections leased", String.format("leased connections grow %.1f per hour to %.0f (baseline at most %d, "
+                    + "p=%.2g), connections are not being returned", leased.slope, latestLeased, baselineMaxLeased, leased.pValue)));
+        }
+        return found;
+    }
+
+    // Records the drift under key the first time it is seen and returns its message
+    private String drift(String key, String message) {
+        if (!drifts.containsKey(key)) {
+            drifts.put(key, message);
+            logger.warn("Soak drift: " + message);
+        }
+        return message;
+    }
+
+    // One-sided two-proportion z-test: p-value of "the current error rate is higher than the baseline's"
+    private static double increasePValue(long errors, long count, long baselineErrors, long baselineCount) {
+        if (count == 0 || baselineCount == 0) {
+            return 1.0;
+        }
+        double pooled = (errors + baselineErrors) / (double) (count + baselineCount);
+        double standardError = Math.sqrt(pooled * (1 - pooled) * (1.0 / count + 1.0 / baselineCount));
+        if (standardError == 0) {
+            return 1.0;
+        }
+        double z = (errors / (double) count - baselineErrors / (double) baselineCount) / standardError;
+        return 1 - MannWhitneyU.normalCdf(z);
+    }
+
+    private String summary(Map<Endpoint, Window> current) {
+        StringBuilder summary = new StringBuilder();
+        current.forEach((endpoint, window) -> summary.append(String.format("%s n=%d err=%d p50=%.1fms p99=%.1fms; ",
+                endpoint.configKey(), window.latency.getTotalCount(), window.errors, millis(window.latency, 50), millis(window.latency, 99))));
+        return summary.toString();
+    }
+
+    private void write(ObjectNode line) {
+        try {
+            writer.write(mapper.writeValueAsString(line));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            logger.warn("Could not write soak results to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private double elapsedHours() {
+        return (System.nanoTime() - startNanos) / (double) TimeUnit.HOURS.toNanos(1);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    // Response times and error count of one route over one or more windows
+    private static final class Window {
+        private final Histogram latency;
+        private final long errors;
+
+        private Window(Histogram latency, long errors) {
+            this.latency = latency;
+            this.errors = errors;
+        }
+
+        private Window plus(Window other) {
+            Histogram merged = latency.copy();
+            merged.add(other.latency);
+            return new Window(merged, errors + other.errors);
+        }
+
+        private double errorRate() {
+            long count = latency.getTotalCount();
+            return count == 0 ? 0 : errors / (double) count;
+        }
+    }
+
+    // Least-squares slope of y over x, with the one-sided p-value of "the slope is positive" (normal approximation
+    // of the t statistic, the series hold at least baselineWindows + 1 points)
+    private static final class Trend {
+        private final double slope;
+        private final double pValue;
+
+        private Trend(double slope, double pValue) {
+            this.slope = slope;
+            this.pValue = pValue;
+        }
+
+        private static Trend of(List<double[]> points) {
+            int n = points.size();
+            if (n < 3) {
+                return new Trend(0, 1.0);
+            }
+            double meanX = 0;
+            double meanY = 0;
+            for (double[] point : points) {
+                meanX += point[0] / n;
+                meanY += point[1] / n;
+            }
+            double sxx = 0;
+            double sxy = 0;
+            for (double[] point : points) {
+                sxx += (point[0] - meanX) * (point[0] - meanX);
+                sxy += (point[0] - meanX) * (point[1] - meanY);
+            }
+            if (sxx == 0) {
+                return new Trend(0, 1.0);
+            }
+            double slope = sxy / sxx;
+            double residuals = 0;
+            for (double[] point : points) {
+                double residual = point[1] - meanY - slope * (point[0] - meanX);
+                residuals += residual * residual;
+            }
+            double standardError = Math.sqrt(residuals / (n - 2) / sxx);
+            if (standardError == 0) {
+                return new Trend(slope, slope > 0 ? 0.0 : 1.0);
+            }
+            return new Trend(slope, 1 - MannWhitneyU.normalCdf(slope / standardError));
+        }
+    }
+}
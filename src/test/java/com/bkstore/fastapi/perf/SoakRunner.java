@@ -0,0 +1,189 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.auth.TokenManager;
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.UserSignup;
+import com.bkstore.fastapi.api.resilience.RetryPolicy;
+import com.bkstore.fastapi.api.services.AuthService;
+import com.bkstore.fastapi.api.services.BookService;
+import com.bkstore.fastapi.sharding.Shard;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+// Endurance (soak) run: cycles the BookTests CRUD flow (create -> get -> update -> delete) and the UserTests
+// signup -> login flow at a steady rate for hours, while SoakMonitor snapshots the run and looks for drift.
+// Flows are released on a fixed schedule like LoadGenerator's requests, and the first step of a flow is timed from
+// its scheduled start, so a server falling behind shows up as latency instead of a silently lower rate. Waiting flows
+// are queued up to QUEUED_FLOWS_PER_WORKER per worker; beyond that they are dropped and counted, so a slow server
+// cannot make the client's own memory grow and pass for a client-side leak.
+// Every CRUD flow takes its token from the TokenManager, which logs the soak user in again before the token expires,
+// so a run longer than the token lifetime also exercises renewal. prepare() makes sure that user has a password to
+// log in with; a user restored from the token cache has none and is replaced by a new signup once per run.
+public class SoakRunner {
+
+    // Routes the soak flows exercise
+    public static final Set<Endpoint> ROUTES = EnumSet.of(Endpoint.SIGNUP, Endpoint.LOGIN, Endpoint.CREATE_BOOK,
+            Endpoint.GET_BOOK, Endpoint.UPDATE_BOOK, Endpoint.DELETE_BOOK);
+
+    private static final Logger logger = LogManager.getLogger(SoakRunner.class);
+    private static final String PASSWORD = "SoakTestPassword123!";
+    private static final String SOAK_USER = "soak";
+    private static final int QUEUED_FLOWS_PER_WORKER = 10;
+
+    private final RequestSpecification reqSpec;
+    private final SoakMonitor monitor;
+    private final AuthService authService = new AuthService();
+    // No retries: every timed request is one attempt, failures count towards the error rate
+    private final BookService bookService = new BookService(RetryPolicy.NONE);
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong flowCounter = new AtomicLong();
+
+    public SoakRunner(RequestSpecification reqSpec, SoakMonitor monitor) {
+        this.reqSpec = reqSpec;
+        this.monitor = monitor;
+    }
+
+    // Makes sure the shared soak user can log in before the clock starts (see TokenManager.getLoginSession)
+    public void prepare() {
+        TokenManager.getInstance().getLoginSession(reqSpec, SOAK_USER);
+    }
+
+    // Runs both flows for the given duration (flows per second, 0 disables a flow), taking a snapshot every
+    // snapshotInterval and a last one after the final flows have finished
+    public void run(Duration duration, double crudRate, double userRate, int maxConcurrency, Duration snapshotInterval)
+            throws InterruptedException {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConcurrency * QUEUED_FLOWS_PER_WORKER), namedThreads("soak-worker"));
+        ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(namedThreads("soak-snapshot"));
+
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // let all pacers start together
+        long endNanos = startNanos + duration.toNanos();
+        List<Thread> pacers = new ArrayList<>();
+        if (crudRate > 0) {
+            pacers.add(pacer("crud", crudRate, this::crudFlow, workers, startNanos, endNanos));
+        }
+        if (userRate > 0) {
+            pacers.add(pacer("user", userRate, this::userFlow, workers, startNanos, endNanos));
+        }
+
+        logger.info("Starting soak run for " + duration.getSeconds() + "s: " + crudRate + " CRUD flows/s, " + userRate
+                + " user flows/s, " + maxConcurrency + " workers, a snapshot every " + snapshotInterval.getSeconds() + "s.");
+        snapshots.scheduleAtFixedRate(monitor::snapshot, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        pacers.forEach(Thread::start);
+        for (Thread pacer : pacers) {
+            pacer.join();
+        }
+
+        workers.shutdown();
+        if (!workers.awaitTermination(Math.max(30, snapshotInterval.getSeconds()), TimeUnit.SECONDS)) {
+            logger.warn("Soak workers did not drain in time, " + workers.shutdownNow().size() + " flows were dropped.");
+        }
+        snapshots.shutdownNow();
+        snapshots.awaitTermination(30, TimeUnit.SECONDS);
+        monitor.snapshot();
+    }
+
+    private Thread pacer(String flow, double rate, LongConsumer body, ThreadPoolExecutor workers, long startNanos, long endNanos) {
+        Thread pacer = new Thread(() -> {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            for (long i = 0; ; i++) {
+                long intendedStart = startNanos + i * intervalNanos;
+                if (intendedStart >= endNanos) {
+                    return;
+                }
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                try {
+                    workers.execute(() -> body.accept(intendedStart));
+                } catch (RejectedExecutionException e) {
+                    monitor.flowDropped();
+                }
+            }
+        }, "soak-pacer-" + flow);
+        pacer.setDaemon(true);
+        return pacer;
+    }
+
+    // create -> get -> update -> delete of a fresh book; the delete also runs when get or update failed
+    private void crudFlow(long intendedStart) {
+        String token;
+        try {
+            token = TokenManager.getInstance().getToken(reqSpec, SOAK_USER);
+        } catch (RuntimeException e) {
+            // Renewing an expired token logs in again, so a failed renewal counts against POST /login
+            logger.debug("Soak token renewal failed: " + e.getMessage());
+            long now = System.nanoTime();
+            monitor.record(Endpoint.LOGIN, now - intendedStart, 0, true);
+            return;
+        }
+        long n = flowCounter.incrementAndGet();
+        String name = Shard.bookName("Soak book " + runId + "-" + n);
+        Book book = new Book(name, "soak_user_" + runId, 1900 + (int) (n % 125), "Summary of " + name);
+        Response created = step(Endpoint.CREATE_BOOK, intendedStart, () -> bookService.createBook(reqSpec, book, token));
+        if (created == null) {
+            return;
+        }
+        int bookId = created.path("id");
+        step(Endpoint.GET_BOOK, System.nanoTime(), () -> bookService.getBook(reqSpec, bookId, token));
+        Book update = new Book(bookId, name + " (updated)", book.getAuthor(), book.getPublished_year(), "Updated summary of " + name);
+        step(Endpoint.UPDATE_BOOK, System.nanoTime(), () -> bookService.updateBook(reqSpec, bookId, update, token));
+        step(Endpoint.DELETE_BOOK, System.nanoTime(), () -> bookService.deleteBook(reqSpec, bookId, token));
+    }
+
+    // signup of a new user, then login with its credentials
+    private void userFlow(long intendedStart) {
+        String email = Shard.uniqueEmail("soak_" + runId);
+        int userId = Shard.userId();
+        if (step(Endpoint.SIGNUP, intendedStart, () -> authService.signupUser(reqSpec, new UserSignup(userId, email, PASSWORD))) != null) {
+            step(Endpoint.LOGIN, System.nanoTime(), () -> authService.loginUser(reqSpec, new UserLogin(userId, email, PASSWORD)));
+        }
+    }
+
+    // Times one request and attributes it to its route; returns the response, or null if the call failed
+    private Response step(Endpoint endpoint, long intendedStart, Supplier<Response> call) {
+        long actualStart = System.nanoTime();
+        Response response = null;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            logger.debug("Soak request to " + endpoint.label() + " failed: " + e.getMessage());
+        }
+        boolean error = response == null || response.statusCode() < 200 || response.statusCode() >= 300;
+        long end = System.nanoTime();
+        monitor.record(endpoint, end - intendedStart, end - actualStart, error);
+        return error ? null : response;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
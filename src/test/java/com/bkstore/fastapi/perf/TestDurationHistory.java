@@ -0,0 +1,176 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.EnvironmentManager;
+import com.bkstore.fastapi.utilities.TestConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Wall time of every test method (qualified name -> milliseconds) over past runs, kept as a moving average in
+// <test.durations.dir>/<env>.properties. TestSchedulingInterceptor uses it to balance shards and to start the longest
+// tests first; TestDurationListener records the current run, which is saved at suite end.
+// The file is only read by shards, which write their own <env>-shard-<i>-of-<n>.properties instead: a shard that
+// finishes early must not change the history a slower shard has yet to partition with. mergeShardFiles folds those
+// files back in once every shard is done.
+public final class TestDurationHistory {
+
+    private static final Logger logger = LogManager.getLogger(TestDurationHistory.class);
+    private static final Pattern SHARD_FILE = Pattern.compile("(.+)-shard-\\d+-of-\\d+\\.properties$");
+    private static TestDurationHistory instance;
+
+    private final File file;
+    private final double smoothing;
+    // Durations of previous runs, as read at startup
+    private final Map<String, Double> history;
+    // Milliseconds spent in each method during this run, summed over invocations
+    private final Map<String, Long> current = new ConcurrentHashMap<>();
+    // Averages written by earlier save() calls of this JVM
+    private final Map<String, Double> saved = new HashMap<>();
+
+    private TestDurationHistory(File file, double smoothing) {
+        this.file = file;
+        this.smoothing = smoothing;
+        this.history = Collections.unmodifiableMap(read(file));
+    }
+
+    public static synchronized TestDurationHistory getInstance() {
+        if (instance == null) {
+            TestConfig config = TestConfig.get();
+            instance = new TestDurationHistory(new File(directory(), EnvironmentManager.getEnvironment() + ".properties"),
+                    config.getDurationSmoothing());
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return TestConfig.get().getBoolean("test.durations.enabled", true);
+    }
+
+    // Average duration in milliseconds of every method seen in previous runs
+    public Map<String, Double> getDurations() {
+        return history;
+    }
+
+    public void record(String method, long millis) {
+        current.merge(method, Math.max(0, millis), Long::sum);
+    }
+
+    // Blends this run into the history and writes it (only this run's methods to the shard file when sharded).
+    // Called at the end of every suite; later suites of the same JVM add to what earlier ones saved.
+    public synchronized void save() {
+        if (current.isEmpty()) {
+            return;
+        }
+        current.forEach((method, millis) -> {
+            Double previous = history.get(method);
+            saved.put(method, previous == null ? millis : previous + smoothing * (millis - previous));
+        });
+        File target = file;
+        Map<String, Double> durations = new HashMap<>(saved);
+        if (Shard.isSharded()) {
+            target = new File(file.getParentFile(), EnvironmentManager.getEnvironment() + Shard.fileSuffix() + ".properties");
+        } else {
+            durations = new HashMap<>(history);
+            durations.putAll(saved);
+        }
+        write(target, durations);
+        logger.info("Durations of " + current.size() + " test methods saved to " + target);
+        current.clear();
+    }
+
+    // Folds the shard files found under dir (recursively) into the history files of test.durations.dir and deletes
+    // them. Shards run disjoint methods, so a shard's value simply replaces the older one.
+    public static void mergeShardFiles(File dir) {
+        List<File> shardFiles = new ArrayList<>();
+        collect(dir, shardFiles);
+        Map<String, Map<String, Double>> mergedByBase = new HashMap<>();
+        for (File shardFile : shardFiles) {
+            Matcher matcher = SHARD_FILE.matcher(shardFile.getName());
+            matcher.matches();
+            File base = new File(directory(), matcher.group(1) + ".properties");
+            mergedByBase.computeIfAbsent(base.getPath(), path -> read(base)).putAll(read(shardFile));
+        }
+        mergedByBase.forEach((path, durations) -> write(new File(path), durations));
+        for (File shardFile : shardFiles) {
+            if (!shardFile.delete()) {
+                logger.warn("Could not delete merged test duration file " + shardFile);
+            }
+        }
+        if (!shardFiles.isEmpty()) {
+            logger.info("Merged " + shardFiles.size() + " shard test duration files into " + mergedByBase.keySet());
+        }
+    }
+
+    private static File directory() {
+        return new File(TestConfig.get().getString("test.durations.dir", ".cache/test-durations"));
+    }
+
+    private static void collect(File file, List<File> found) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            if (file.isFile() && SHARD_FILE.matcher(file.getName()).matches()) {
+                found.add(file);
+            }
+            return;
+        }
+        for (File child : children) {
+            collect(child, found);
+        }
+    }
+
+    private static Map<String, Double> read(File file) {
+        Map<String, Double> durations = new HashMap<>();
+        if (!file.exists()) {
+            return durations;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warn("Could not read test durations " + file + ": " + e.getMessage());
+            return durations;
+        }
+        for (String method : properties.stringPropertyNames()) {
+            try {
+                durations.put(method, Double.parseDouble(properties.getProperty(method)));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid duration of " + method + " in " + file + ": " + properties.getProperty(method));
+            }
+        }
+        return durations;
+    }
+
+    // Written to a temporary file first, so a crash never leaves a truncated history behind
+    private static void write(File file, Map<String, Double> durations) {
+        Properties properties = new Properties();
+        durations.forEach((method, millis) -> properties.setProperty(method, String.valueOf(Math.round(millis))));
+        try {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            File temp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Average test method durations in milliseconds");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write test durations " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.bkstore.fastapi.perf;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Compact, append-only binary file of TrafficRecords:
+//   header: int magic "BKTR", short version, long recording start (epoch millis), UTF base URI
+//   then per record: int frame length, frame bytes (see TrafficRecord.write)
+// Length-prefixed frames let the reader drop a final record that was cut off by a killed JVM.
+public class TrafficLog {
+
+    private static final Logger logger = LogManager.getLogger(TrafficLog.class);
+
+    private static final int MAGIC = 0x424B5452;
+    private static final short VERSION = 1;
+
+    private final String baseUri;
+    private final long startedAtEpochMillis;
+    private final List<TrafficRecord> records;
+
+    private TrafficLog(String baseUri, long startedAtEpochMillis, List<TrafficRecord> records) {
+        this.baseUri = baseUri;
+        this.startedAtEpochMillis = startedAtEpochMillis;
+        this.records = Collections.unmodifiableList(records);
+    }
+
+    // Base URI the traffic was recorded against
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    public long getStartedAtEpochMillis() {
+        return startedAtEpochMillis;
+    }
+
+    // Records in the order their requests were started
+    public List<TrafficRecord> getRecords() {
+        return records;
+    }
+
+    public static TrafficLog read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a traffic recording");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported recording version " + version);
+            }
+            long startedAt = in.readLong();
+            String baseUri = in.readUTF();
+
+            List<TrafficRecord> records = new ArrayList<>();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] frame = new byte[length];
+                try {
+                    in.readFully(frame);
+                } catch (EOFException e) {
+                    logger.warn("Ignoring truncated last record in " + file);
+                    break;
+                }
+                records.add(TrafficRecord.read(new DataInputStream(new ByteArrayInputStream(frame))));
+            }
+            // Records are appended when their response arrives; replay needs them in start order
+            records.sort((a, b) -> Long.compare(a.getStartOffsetNanos(), b.getStartOffsetNanos()));
+            return new TrafficLog(baseUri, startedAt, records);
+        }
+    }
+
+    // Appends records to a new recording file; safe to use from many threads
+    public static class Writer implements Closeable {
+
+        private final DataOutputStream out;
+
+        public Writer(File file, String baseUri) throws IOException {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeUTF(baseUri == null ? "" : baseUri);
+        }
+
+        public void append(TrafficRecord record) throws IOException {
+            // Serialize outside the lock, only the copy into the file is serialized between threads
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+            record.write(new DataOutputStream(frame));
+            synchronized (out) {
+                out.writeInt(frame.size());
+                frame.writeTo(out);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (out) {
+                out.close();
+            }
+        }
+    }
+}
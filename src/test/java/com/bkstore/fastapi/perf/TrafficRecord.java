@@ -0,0 +1,141 @@
+package com.bkstore.fastapi.perf;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One recorded HTTP exchange. Requests keep the route template from Routes plus the path parameters
+// (instead of the resolved URL), so the replayer can substitute ids that differ between servers.
+public class TrafficRecord {
+
+    private final long startOffsetNanos;
+    private final long durationNanos;
+    private final String method;
+    private final String route;
+    private final Map<String, String> pathParams;
+    private final List<String[]> headers;
+    private final byte[] requestBody;
+    private final int status;
+    private final byte[] responseBody;
+
+    public TrafficRecord(long startOffsetNanos, long durationNanos, String method, String route, Map<String, String> pathParams,
+                         List<String[]> headers, byte[] requestBody, int status, byte[] responseBody) {
+        this.startOffsetNanos = startOffsetNanos;
+        this.durationNanos = durationNanos;
+        this.method = method;
+        this.route = route;
+        this.pathParams = Collections.unmodifiableMap(new LinkedHashMap<>(pathParams));
+        this.headers = Collections.unmodifiableList(new ArrayList<>(headers));
+        this.requestBody = requestBody;
+        this.status = status;
+        this.responseBody = responseBody;
+    }
+
+    // Time between the start of the recording and the start of this request
+    public long getStartOffsetNanos() {
+        return startOffsetNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    // Route template, e.g. "/books/{id}"
+    public String getRoute() {
+        return route;
+    }
+
+    public Map<String, String> getPathParams() {
+        return pathParams;
+    }
+
+    // Name/value pairs in the order they were sent
+    public List<String[]> getHeaders() {
+        return headers;
+    }
+
+    // Null when the request had no body
+    public byte[] getRequestBody() {
+        return requestBody;
+    }
+
+    // -1 when no response was received
+    public int getStatus() {
+        return status;
+    }
+
+    // Null when there was no response body; may be cut to traffic.record.max.response.bytes
+    public byte[] getResponseBody() {
+        return responseBody;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(startOffsetNanos);
+        out.writeLong(durationNanos);
+        out.writeUTF(method);
+        out.writeUTF(route);
+        out.writeShort(pathParams.size());
+        for (Map.Entry<String, String> param : pathParams.entrySet()) {
+            out.writeUTF(param.getKey());
+            out.writeUTF(param.getValue());
+        }
+        out.writeShort(headers.size());
+        for (String[] header : headers) {
+            out.writeUTF(header[0]);
+            out.writeUTF(header[1]);
+        }
+        writeBytes(out, requestBody);
+        out.writeShort(status);
+        writeBytes(out, responseBody);
+    }
+
+    static TrafficRecord read(DataInputStream in) throws IOException {
+        long startOffsetNanos = in.readLong();
+        long durationNanos = in.readLong();
+        String method = in.readUTF();
+        String route = in.readUTF();
+        int paramCount = in.readUnsignedShort();
+        Map<String, String> pathParams = new LinkedHashMap<>();
+        for (int i = 0; i < paramCount; i++) {
+            pathParams.put(in.readUTF(), in.readUTF());
+        }
+        int headerCount = in.readUnsignedShort();
+        List<String[]> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(new String[]{in.readUTF(), in.readUTF()});
+        }
+        byte[] requestBody = readBytes(in);
+        int status = in.readShort();
+        byte[] responseBody = readBytes(in);
+        return new TrafficRecord(startOffsetNanos, durationNanos, method, route, pathParams, headers, requestBody, status, responseBody);
+    }
+
+    // Length-prefixed, -1 for null
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
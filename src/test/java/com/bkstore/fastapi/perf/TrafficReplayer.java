@@ -0,0 +1,321 @@
+package com.bkstore.fastapi.perf;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.services.AsyncApiClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Re-issues a recorded TrafficLog against another server, e.g. to compare latency between two builds
+// with exactly the same workload. Requests are released on the recorded schedule divided by speedFactor
+// (1 = original pace, 2 = twice as fast, Double.POSITIVE_INFINITY = as fast as possible).
+//
+// Values that differ between servers are remapped: book ids and access tokens returned by the target are
+// substituted into later requests that used the recorded values, and those requests wait only for the
+// response that produces them. Signup/login emails get a per-replay suffix so a replay never collides
+// with users created by the recording or an earlier replay.
+public class TrafficReplayer {
+
+    private static final Logger logger = LogManager.getLogger(TrafficReplayer.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern EMAIL = Pattern.compile("(\"email\"\\s*:\\s*\")([^\"@]+)@");
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final TrafficLog log;
+    private final AsyncApiClient client;
+    private final double speedFactor;
+    private final int maxInFlight;
+    private final String emailSuffix = "+r" + Long.toString(System.currentTimeMillis(), 36);
+
+    // "id:<recorded id>" / "token:<recorded token>" -> value returned by the replay target for the same request
+    private final Map<String, CompletableFuture<String>> substitutions = new ConcurrentHashMap<>();
+    // "id:<recorded id>" -> completion of the last dispatched request on that book (only used by the dispatch loop)
+    private final Map<String, CompletableFuture<?>> lastRequestOnId = new HashMap<>();
+
+    public TrafficReplayer(TrafficLog log, AsyncApiClient client, double speedFactor, int maxInFlight) {
+        if (!(speedFactor > 0)) {
+            throw new IllegalArgumentException("Speed factor must be positive: " + speedFactor);
+        }
+        this.log = log;
+        this.client = client;
+        this.speedFactor = speedFactor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // Replays every record and returns latency per route. Errors are responses whose status differs from the recording.
+    public Map<Endpoint, RouteLatency> replay() throws InterruptedException {
+        Map<Endpoint, RouteLatency> results = new EnumMap<>(Endpoint.class);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        int skipped = 0;
+
+        logger.info("Replaying " + log.getRecords().size() + " requests at " + (Double.isInfinite(speedFactor) ? "maximum speed" : speedFactor + "x speed")
+                + " with up to " + maxInFlight + " in flight.");
+        long replayStart = System.nanoTime();
+        for (TrafficRecord record : log.getRecords()) {
+            Endpoint endpoint = Endpoint.of(record.getMethod(), record.getRoute());
+            if (endpoint == null) {
+                skipped++;
+                continue;
+            }
+            long intendedStart = Double.isInfinite(speedFactor)
+                    ? System.nanoTime()
+                    : replayStart + (long) (record.getStartOffsetNanos() / speedFactor);
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            RouteLatency latency = results.computeIfAbsent(endpoint, key -> new RouteLatency(key.label()));
+            pending.add(issue(record, latency, intendedStart).whenComplete((ignored, failure) -> inFlight.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+
+        if (skipped > 0) {
+            logger.warn("Skipped " + skipped + " recorded requests to routes that are not in Endpoint.");
+        }
+        return results;
+    }
+
+    private CompletableFuture<?> issue(TrafficRecord record, RouteLatency latency, long intendedStart) {
+        String requestBody = record.getRequestBody() == null ? null : new String(record.getRequestBody(), StandardCharsets.UTF_8);
+        JsonNode requestJson = requestBody == null ? null : readJsonObject(record.getRequestBody());
+        boolean recordedSuccess = record.getStatus() >= 200 && record.getStatus() < 300;
+
+        // Wait for the responses that produce the ids, token and user this request uses, and for the previous
+        // request on the same book so that e.g. GET, PUT and DELETE of one book keep their recorded order
+        List<String> usedKeys = usedKeys(record, requestJson);
+        List<CompletableFuture<?>> dependencies = new ArrayList<>();
+        for (String key : usedKeys) {
+            CompletableFuture<String> producer = substitutions.get(key);
+            if (producer != null) {
+                dependencies.add(producer);
+            }
+            CompletableFuture<?> previous = lastRequestOnId.get(key);
+            if (previous != null) {
+                dependencies.add(previous);
+            }
+        }
+        // Register what this request produces before later requests are dispatched. Only the first response
+        // carrying a value produces it (e.g. POST /books/), so later reads of the same book stay independent.
+        Map<String, CompletableFuture<String>> produced = new LinkedHashMap<>();
+        JsonNode recordedResponse = recordedSuccess ? readJsonObject(record.getResponseBody()) : null;
+        if (recordedResponse != null) {
+            registerProducer(produced, "id", "id:", recordedResponse);
+            registerProducer(produced, "access_token", "token:", recordedResponse);
+        }
+        // The first successful request with an email (the signup) creates that user: logins and duplicate
+        // signups for it only need to run after it, there is no value to substitute
+        CompletableFuture<String> userCreated = null;
+        if (recordedSuccess && requestJson != null && requestJson.hasNonNull("email")) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (substitutions.putIfAbsent("user:" + requestJson.get("email").asText(), future) == null) {
+                userCreated = future;
+            }
+        }
+        CompletableFuture<String> createdUser = userCreated;
+
+        long[] actualStart = new long[1];
+        CompletableFuture<?> done = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                .thenCompose(ignored -> {
+                    actualStart[0] = System.nanoTime();
+                    return client.send(record.getMethod(), resolvePath(record), resolveHeaders(record), resolveBody(record, requestBody));
+                })
+                .whenComplete((response, failure) -> {
+                    long end = System.nanoTime();
+                    long start = actualStart[0] == 0 ? end : actualStart[0];
+                    boolean mismatch = failure != null || response.statusCode() != record.getStatus();
+                    if (mismatch) {
+                        logger.debug("Replayed " + record.getMethod() + " " + record.getRoute() + " returned "
+                                + (failure != null ? failure.toString() : response.statusCode()) + ", recorded " + record.getStatus());
+                    }
+                    latency.record(end - intendedStart, end - start, mismatch);
+                    completeProduced(produced, recordedResponse, failure == null ? response : null);
+                    if (createdUser != null) {
+                        createdUser.complete("");
+                    }
+                })
+                .handle((response, failure) -> null); // a failed request must not fail the ones ordered after it
+
+        for (String key : usedKeys) {
+            if (key.startsWith("id:")) {
+                lastRequestOnId.put(key, done);
+            }
+        }
+        if (recordedResponse != null && recordedResponse.hasNonNull("id")) {
+            lastRequestOnId.put("id:" + recordedResponse.get("id").asText(), done);
+        }
+        return done;
+    }
+
+    private void registerProducer(Map<String, CompletableFuture<String>> produced, String field, String prefix, JsonNode recordedResponse) {
+        if (recordedResponse.hasNonNull(field)) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (substitutions.putIfAbsent(prefix + recordedResponse.get(field).asText(), future) == null) {
+                produced.put(field, future);
+            }
+        }
+    }
+
+    // Keys of the recorded values this request depends on
+    private static List<String> usedKeys(TrafficRecord record, JsonNode body) {
+        List<String> keys = new ArrayList<>();
+        for (String value : record.getPathParams().values()) {
+            keys.add("id:" + value);
+        }
+        for (String[] header : record.getHeaders()) {
+            if (header[0].equalsIgnoreCase("Authorization") && header[1].startsWith("Bearer ")) {
+                keys.add("token:" + header[1].substring("Bearer ".length()));
+            }
+        }
+        // Only a request addressing a book by path (PUT /books/{id}) carries a book id in its body; signup/login carry user ids
+        if (body != null && body.hasNonNull("id") && !record.getPathParams().isEmpty()) {
+            keys.add("id:" + body.get("id").asText());
+        }
+        if (body != null && body.hasNonNull("email")) {
+            keys.add("user:" + body.get("email").asText());
+        }
+        return keys;
+    }
+
+    // Recorded value, or the value the target returned for the request that produced it
+    private String substitute(String prefix, String recordedValue) {
+        CompletableFuture<String> producer = substitutions.get(prefix + recordedValue);
+        return producer == null ? recordedValue : producer.getNow(recordedValue);
+    }
+
+    private String resolvePath(TrafficRecord record) {
+        String path = record.getRoute();
+        for (Map.Entry<String, String> param : record.getPathParams().entrySet()) {
+            path = path.replace("{" + param.getKey() + "}", substitute("id:", param.getValue()));
+        }
+        return path;
+    }
+
+    private List<String[]> resolveHeaders(TrafficRecord record) {
+        List<String[]> headers = new ArrayList<>(record.getHeaders().size());
+        for (String[] header : record.getHeaders()) {
+            if (header[0].equalsIgnoreCase("Authorization") && header[1].startsWith("Bearer ")) {
+                headers.add(new String[]{header[0], "Bearer " + substitute("token:", header[1].substring("Bearer ".length()))});
+            } else {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+
+    private byte[] resolveBody(TrafficRecord record, String requestBody) {
+        if (requestBody == null) {
+            return null;
+        }
+        String body = EMAIL.matcher(requestBody).replaceAll("$1$2" + Matcher.quoteReplacement(emailSuffix) + "@");
+        JsonNode json = readJsonObject(body.getBytes(StandardCharsets.UTF_8));
+        if (json != null && json.hasNonNull("id") && !record.getPathParams().isEmpty()) {
+            String recordedId = json.get("id").asText();
+            body = body.replaceFirst("(\"id\"\\s*:\\s*)" + Pattern.quote(recordedId) + "(?!\\d)", "$1" + substitute("id:", recordedId));
+        }
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Completes every produced value, falling back to the recorded one so dependent requests are never stuck
+    private static void completeProduced(Map<String, CompletableFuture<String>> produced, JsonNode recordedResponse, HttpResponse<String> response) {
+        if (produced.isEmpty()) {
+            return;
+        }
+        JsonNode replayed = response == null ? null : readJsonObject(response.body().getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, CompletableFuture<String>> entry : produced.entrySet()) {
+            String field = entry.getKey();
+            String value = replayed != null && replayed.hasNonNull(field) ? replayed.get(field).asText() : recordedResponse.get(field).asText();
+            entry.getValue().complete(value);
+        }
+    }
+
+    // Parses a JSON object, or returns null for anything else (arrays, plain text, truncated bodies)
+    private static JsonNode readJsonObject(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != '{') {
+            return null;
+        }
+        try {
+            JsonNode node = mapper.readTree(bytes);
+            return node != null && node.isObject() ? node : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Usage: TrafficReplayer <recording.bin> <base uri> [original|max|<speed factor>] [max in flight] [output dir]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: TrafficReplayer <recording.bin> <base uri> [original|max|<speed factor>] [max in flight] [output dir]");
+        }
+        TrafficLog log = TrafficLog.read(new File(args[0]));
+        String baseUri = args[1];
+        String speed = args.length > 2 ? args[2] : "original";
+        double speedFactor = speed.equalsIgnoreCase("original") ? 1.0
+                : speed.equalsIgnoreCase("max") ? Double.POSITIVE_INFINITY
+                : Double.parseDouble(speed);
+        int maxInFlight = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        File outputDir = new File(args.length > 4 ? args[4] : "target" + File.separator + "replay-results");
+
+        logger.info("Loaded " + log.getRecords().size() + " requests recorded against " + log.getBaseUri() + ", replaying against " + baseUri);
+        Map<Endpoint, RouteLatency> results;
+        try (AsyncApiClient client = new AsyncApiClient(baseUri, HttpClient.Version.HTTP_1_1, Duration.ofSeconds(10), Duration.ofSeconds(60), 4)) {
+            results = new TrafficReplayer(log, client, speedFactor, maxInFlight).replay();
+        }
+        report(log, results, outputDir);
+    }
+
+    // Logs recorded vs replayed percentiles per route and writes the replayed distributions as .hgrm files
+    public static void report(TrafficLog log, Map<Endpoint, RouteLatency> results, File outputDir) {
+        Map<Endpoint, Histogram> recorded = new EnumMap<>(Endpoint.class);
+        for (TrafficRecord record : log.getRecords()) {
+            Endpoint endpoint = Endpoint.of(record.getMethod(), record.getRoute());
+            if (endpoint != null) {
+                recorded.computeIfAbsent(endpoint, key -> RouteLatency.newHistogram())
+                        .recordValue(Math.max(TimeUnit.MICROSECONDS.toNanos(1), Math.min(record.getDurationNanos(), TimeUnit.HOURS.toNanos(1))));
+            }
+        }
+
+        outputDir.mkdirs();
+        for (Map.Entry<Endpoint, RouteLatency> entry : results.entrySet()) {
+            Histogram before = recorded.get(entry.getKey());
+            Histogram serviceTime = entry.getValue().serviceTimeSnapshot();
+            Histogram responseTime = entry.getValue().responseTimeSnapshot();
+            logger.info(String.format("%-22s count=%d status mismatches=%d | recorded p50=%.2fms p99=%.2fms | replayed service p50=%.2fms p99=%.2fms max=%.2fms | response p99=%.2fms",
+                    entry.getKey().label(), serviceTime.getTotalCount(), entry.getValue().getErrorCount(),
+                    before.getValueAtPercentile(50) / NANOS_PER_MILLI, before.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    serviceTime.getValueAtPercentile(50) / NANOS_PER_MILLI, serviceTime.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    serviceTime.getMaxValue() / NANOS_PER_MILLI, responseTime.getValueAtPercentile(99) / NANOS_PER_MILLI));
+            try (PrintStream out = new PrintStream(new File(outputDir, entry.getKey().configKey() + ".hgrm"))) {
+                responseTime.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            } catch (FileNotFoundException e) {
+                logger.warn("Could not write percentile distribution for " + entry.getKey().label() + ": " + e.getMessage());
+            }
+        }
+        logger.info("Replay percentile distributions written to: " + outputDir.getAbsolutePath());
+    }
+}
@@ -0,0 +1,62 @@
+package com.bkstore.fastapi.sharding;
+
+import com.bkstore.fastapi.utilities.TestConfig;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The slice of the suite this JVM runs (test.shard.index of test.shard.count) and the test data naming that keeps
+// concurrent shards apart: every shard signs up users and creates books under its own prefix, and draws user ids
+// from its own residue class, so two shards running against the same environment never collide.
+// Without sharding the prefix is empty and names look as they always did.
+public final class Shard {
+
+    private static final int MIN_USER_ID = 1000;
+    private static final int MAX_USER_ID = 100000;
+
+    private Shard() {
+    }
+
+    public static int index() {
+        return TestConfig.get().getShardIndex();
+    }
+
+    public static int count() {
+        return TestConfig.get().getShardCount();
+    }
+
+    public static boolean isSharded() {
+        return count() > 1;
+    }
+
+    // e.g. "shard 2/4" (1-based, for logs)
+    public static String label() {
+        return "shard " + (index() + 1) + "/" + count();
+    }
+
+    // Appended to per-run file names (reports, token cache, performance history) so shards never share a file
+    public static String fileSuffix() {
+        return isSharded() ? "-shard-" + index() + "-of-" + count() : "";
+    }
+
+    // Test data prefix, e.g. "s2_"
+    public static String prefix() {
+        return isSharded() ? "s" + index() + "_" : "";
+    }
+
+    // e.g. uniqueEmail("user") -> "user_s2_1a2b3c4d@example.com"
+    public static String uniqueEmail(String kind) {
+        return kind + "_" + prefix() + UUID.randomUUID().toString().substring(0, 8) + "@example.com";
+    }
+
+    public static String bookName(String name) {
+        return prefix() + name;
+    }
+
+    // Random user id in [1000, 100000) that is congruent to the shard index modulo the shard count
+    public static int userId() {
+        int count = count();
+        int slots = (MAX_USER_ID - MIN_USER_ID) / count;
+        return MIN_USER_ID + ThreadLocalRandom.current().nextInt(slots) * count + index();
+    }
+}
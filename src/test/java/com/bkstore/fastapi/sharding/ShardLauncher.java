@@ -0,0 +1,107 @@
+package com.bkstore.fastapi.sharding;
+
+import com.bkstore.fastapi.perf.TestDurationHistory;
+import com.bkstore.fastapi.stub.BookstoreStubServer;
+import com.bkstore.fastapi.stub.StubServerListener;
+import com.bkstore.fastapi.utilities.TestConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs a suite XML in N forked JVMs at once, one shard each (see TestSchedulingInterceptor), then merges the shard reports
+// with ShardReportMerger. Surefire runs all suite files of a build in a single fork, so it cannot split one suite
+// across JVMs by itself; this launcher does, via the shards profile:
+//   mvn verify -Pshards -Dshards=4 -DsuiteXmlFile=regression_suite.xml -Dshard.args="-Denv=qa"
+// System properties given to the launcher (-Denv, -Dstub.enabled, ...) are passed on to every shard. With the stub
+// enabled the launcher starts one stub server and all shards use it, so they exercise shared state like real shards.
+// Each shard writes its TestNG output to target/shards/shard-<i> and its console to target/shards/shard-<i>.log.
+// The shards' test durations are folded into the TestDurationHistory once all of them are done.
+public final class ShardLauncher {
+
+    private static final Logger logger = LogManager.getLogger(ShardLauncher.class);
+
+    private ShardLauncher() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ShardLauncher <suite xml> <shard count>");
+        }
+        String suite = args[0];
+        int shardCount = Integer.parseInt(args[1]);
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1, got " + shardCount);
+        }
+        // File modification times have second granularity on some file systems
+        long launchedAt = System.currentTimeMillis() - 1000;
+
+        BookstoreStubServer stub = StubServerListener.startIfEnabled();
+        if (stub != null) {
+            logger.info("Shards share the bookstore stub server at " + stub.getBaseUri());
+        }
+
+        File shardsDir = new File("target/shards");
+        shardsDir.mkdirs();
+        List<Process> processes = new ArrayList<>();
+        for (int index = 0; index < shardCount; index++) {
+            processes.add(start(suite, index, shardCount, stub != null, shardsDir));
+        }
+
+        boolean failed = false;
+        for (int index = 0; index < shardCount; index++) {
+            int exitCode = processes.get(index).waitFor();
+            // TestNG exit codes are bit flags: 1 = failed tests, 2 = skipped tests, 4 = failures within success
+            // percentage, 8 = no tests ran (a shard may legitimately get none); anything else means the JVM failed
+            boolean shardFailed = exitCode < 0 || exitCode > 15 || (exitCode & 1) != 0;
+            logger.info("Shard " + (index + 1) + "/" + shardCount + " exited with " + exitCode
+                    + (shardFailed ? ", see " + new File(shardsDir, "shard-" + index + ".log") : ""));
+            failed |= shardFailed;
+        }
+
+        if (TestDurationHistory.isEnabled()) {
+            TestDurationHistory.mergeShardFiles(new File(TestConfig.get().getString("test.durations.dir", ".cache/test-durations")));
+        }
+        ShardReportMerger.Result result = ShardReportMerger.merge(
+                ShardReportMerger.findShardReports(new File("reports"), launchedAt), new File("reports"), shardCount);
+        logger.info(result);
+        if (stub != null) {
+            stub.stop();
+        }
+        if (failed || !result.isComplete() || result.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Process start(String suite, int index, int shardCount, boolean sharedStub, File shardsDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-D") && !argument.startsWith("-Dtest.shard.")) {
+                command.add(argument);
+            }
+        }
+        command.add("-Dtest.shard.index=" + index);
+        command.add("-Dtest.shard.count=" + shardCount);
+        if (sharedStub) {
+            command.add("-Dstub.enabled=false");
+        }
+        command.add("org.testng.TestNG");
+        command.add("-d");
+        command.add(new File(shardsDir, "shard-" + index).getPath());
+        command.add(suite);
+
+        File log = new File(shardsDir, "shard-" + index + ".log");
+        logger.info("Starting shard " + (index + 1) + "/" + shardCount + ", output in " + log);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+    }
+}
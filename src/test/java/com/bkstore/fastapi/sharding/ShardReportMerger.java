@@ -0,0 +1,227 @@
+package com.bkstore.fastapi.sharding;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.bkstore.fastapi.perf.TestDurationHistory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Combines the reports of every shard of a run into one:
+//   Test-Results-*-shard-<i>-of-<n>.jsonl -> Test-Results-<timestamp>-merged.jsonl, every line tagged with its "shard",
+//     closed by a "merged" line with the totals and any shard that did not report
+//   Test-Report-*-shard-<i>-of-<n>.json (Extent JSON archives) -> Test-Report-<timestamp>-merged.html
+//   <env>-shard-<i>-of-<n>.properties (test durations, main only) -> the TestDurationHistory of test.durations.dir
+// Lines are copied one at a time, so memory use does not grow with the number of tests.
+// File names carry no run id, so a report of another shard count or a second report for the same shard means stale
+// files from an earlier run were picked up; both fail the merge instead of being counted.
+// After the CI shard jobs, with every shard's reports downloaded into one directory:
+//   mvn test-compile exec:java -Dexec.mainClass=com.bkstore.fastapi.sharding.ShardReportMerger \
+//       -Dexec.classpathScope=test -Dexec.args="shard-reports reports 4"
+// Arguments: the directory to search (recursively), the output directory and the run's shard count.
+public final class ShardReportMerger {
+
+    private static final Logger logger = LogManager.getLogger(ShardReportMerger.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern SHARD_FILE = Pattern.compile(".*-shard-(\\d+)-of-(\\d+)\\.(jsonl|json)$");
+
+    private ShardReportMerger() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: ShardReportMerger <input directory> <output directory> <shard count>");
+        }
+        Result result = merge(findShardReports(new File(args[0]), 0), new File(args[1]), Integer.parseInt(args[2]));
+        // Shard jobs upload their test durations with the reports
+        TestDurationHistory.mergeShardFiles(new File(args[0]));
+        logger.info(result);
+        if (!result.isComplete()) {
+            System.exit(1);
+        }
+    }
+
+    // Shard report files under dir (recursively) last modified at or after sinceMillis, sorted by name
+    public static List<File> findShardReports(File dir, long sinceMillis) {
+        List<File> found = new ArrayList<>();
+        collect(dir, sinceMillis, found);
+        found.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return found;
+    }
+
+    public static Result merge(List<File> reports, File outputDir, int shardCount) {
+        checkShardFiles(reports, shardCount);
+        String timestamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
+        outputDir.mkdirs();
+        Result result = new Result(shardCount);
+        List<File> archives = new ArrayList<>();
+        File merged = new File(outputDir, "Test-Results-" + timestamp + "-merged.jsonl");
+        try (BufferedWriter out = Files.newBufferedWriter(merged.toPath(), StandardCharsets.UTF_8)) {
+            for (File report : reports) {
+                Matcher matcher = SHARD_FILE.matcher(report.getName());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int shard = Integer.parseInt(matcher.group(1));
+                if (matcher.group(3).equals("json")) {
+                    archives.add(report);
+                } else {
+                    copyLines(report, shard, out, result);
+                }
+            }
+            ObjectNode summary = mapper.createObjectNode();
+            summary.put("type", "merged");
+            summary.put("timestamp", System.currentTimeMillis());
+            summary.put("shards", result.expectedShards);
+            summary.putPOJO("reportedShards", result.reportedShards);
+            summary.putPOJO("missingShards", result.getMissingShards());
+            summary.put("passed", result.passed);
+            summary.put("failed", result.failed);
+            summary.put("skipped", result.skipped);
+            out.write(mapper.writeValueAsString(summary));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write merged report " + merged, e);
+        }
+        result.jsonLinesReport = merged;
+
+        if (!archives.isEmpty()) {
+            result.htmlReport = mergeExtentArchives(archives, new File(outputDir, "Test-Report-" + timestamp + "-merged.html"));
+        }
+        return result;
+    }
+
+    // Every report must belong to a run with shardCount shards, and each shard may have one report of each kind
+    private static void checkShardFiles(List<File> reports, int shardCount) {
+        Map<String, File> byShard = new HashMap<>();
+        for (File report : reports) {
+            Matcher matcher = SHARD_FILE.matcher(report.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            if (Integer.parseInt(matcher.group(2)) != shardCount) {
+                throw new IllegalStateException("Shard report " + report + " is from a run with " + matcher.group(2)
+                        + " shards, expected " + shardCount + "; remove stale reports from the input directory");
+            }
+            File other = byShard.put(matcher.group(1) + "." + matcher.group(3), report);
+            if (other != null) {
+                throw new IllegalStateException("Shard " + matcher.group(1) + " has two reports, " + other + " and " + report
+                        + "; remove stale reports from the input directory");
+            }
+        }
+    }
+
+    private static void copyLines(File report, int shard, BufferedWriter out, Result result) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                ObjectNode node = (ObjectNode) mapper.readTree(line);
+                node.put("shard", shard);
+                if ("suite_finish".equals(node.path("type").asText())) {
+                    result.reportedShards.add(shard);
+                    result.passed += node.path("passed").asInt();
+                    result.failed += node.path("failed").asInt();
+                    result.skipped += node.path("skipped").asInt();
+                }
+                out.write(mapper.writeValueAsString(node));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static File mergeExtentArchives(List<File> archives, File html) {
+        ExtentSparkReporter spark = new ExtentSparkReporter(html);
+        spark.config().setDocumentTitle("FastAPI Automation Report");
+        spark.config().setReportName("Bookstore API Test Results (" + archives.size() + " shards)");
+        spark.config().setTheme(Theme.DARK);
+        spark.config().setTimeStampFormat("MMM dd, yyyy HH:mm:ss");
+        ExtentReports extent = new ExtentReports();
+        for (File archive : archives) {
+            try {
+                extent.createDomainFromJsonArchive(archive);
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable Extent archive " + archive + ": " + e.getMessage());
+            }
+        }
+        extent.attachReporter(spark);
+        extent.flush();
+        return html;
+    }
+
+    private static void collect(File file, long sinceMillis, List<File> found) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            if (file.isFile() && SHARD_FILE.matcher(file.getName()).matches() && file.lastModified() >= sinceMillis) {
+                found.add(file);
+            }
+            return;
+        }
+        for (File child : children) {
+            collect(child, sinceMillis, found);
+        }
+    }
+
+    public static final class Result {
+
+        private final Set<Integer> reportedShards = new TreeSet<>();
+        private final int expectedShards;
+        private int passed;
+        private int failed;
+        private int skipped;
+        private File jsonLinesReport;
+        private File htmlReport;
+
+        private Result(int expectedShards) {
+            this.expectedShards = expectedShards;
+        }
+
+        // Shards without a finished JSON lines report, e.g. because their job crashed or was cancelled
+        public Set<Integer> getMissingShards() {
+            Set<Integer> missing = new TreeSet<>();
+            for (int shard = 0; shard < expectedShards; shard++) {
+                if (!reportedShards.contains(shard)) {
+                    missing.add(shard);
+                }
+            }
+            return missing;
+        }
+
+        public boolean isComplete() {
+            return expectedShards > 0 && getMissingShards().isEmpty();
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return "Merged " + reportedShards.size() + " of " + expectedShards + " shards: passed=" + passed + ", failed=" + failed
+                    + ", skipped=" + skipped + (getMissingShards().isEmpty() ? "" : ", missing shards " + getMissingShards())
+                    + "\n  " + jsonLinesReport + (htmlReport == null ? "" : "\n  " + htmlReport);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.bkstore.fastapi.stub;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.payloads.AuthToken;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// In-JVM stand-in for the FastAPI bookstore, built on the JDK HttpServer.
+// It implements every path in Routes with the response contract the test classes assert on,
+// keeps all data in memory, and can simulate per-route service time and a limited number of
+// server workers so the suites can run (and be profiled) without the real server.
+public class BookstoreStubServer {
+
+    private static final Logger logger = LogManager.getLogger(BookstoreStubServer.class);
+    private static final String JSON = "application/json";
+    private static final String BOOKS_PREFIX = "/books/";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Endpoint, Long> serviceTimeMillis = new EnumMap<>(Endpoint.class);
+    private final Map<String, String> passwordsByEmail = new ConcurrentHashMap<>();
+    private final Map<Integer, Book> books = new ConcurrentSkipListMap<>(); // ordered so GET /books/ is stable
+    private final AtomicInteger bookIdSequence = new AtomicInteger();
+    private byte[] signingKey = "bookstore-stub-secret".getBytes(StandardCharsets.UTF_8);
+
+    private final int port;
+    private final int concurrency;
+    private final long tokenTtlSeconds;
+
+    private HttpServer server;
+    private ExecutorService workers;
+
+    public BookstoreStubServer(int port, int concurrency, long tokenTtlSeconds) {
+        this.port = port;
+        this.concurrency = concurrency;
+        this.tokenTtlSeconds = tokenTtlSeconds;
+    }
+
+    // Simulated processing time for a route, applied on the server worker thread before responding
+    public BookstoreStubServer withServiceTime(Endpoint endpoint, long millis) {
+        serviceTimeMillis.put(endpoint, millis);
+        return this;
+    }
+
+    // Tokens stay valid across stub restarts as long as the secret is the same, like the real server
+    public BookstoreStubServer withSigningSecret(String secret) {
+        this.signingKey = secret.getBytes(StandardCharsets.UTF_8);
+        return this;
+    }
+
+    // Pre-populates the catalog so list endpoints can be exercised against realistic sizes
+    public BookstoreStubServer withDataset(int size) {
+        for (int i = 1; i <= size; i++) {
+            int id = bookIdSequence.incrementAndGet();
+            books.put(id, new Book(id, "Stub Book " + i, "stub_author_" + (i % 100) + "@example.com", 1900 + (i % 125), "Generated summary for stub book " + i));
+        }
+        return this;
+    }
+
+    public void start() throws IOException {
+        // The JDK server writes headers and body separately with Nagle's algorithm on, so a small response waits for
+        // the client's delayed ACK (~40ms). Read once when the first server is created, an explicit -D still wins.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        // Fixed worker pool = the server's concurrency limit; extra requests queue until a worker frees up
+        workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "stub-server-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+        server.createContext("/", this::handle);
+        server.start();
+        logger.info("Bookstore stub server listening on " + getBaseUri() + " (workers=" + concurrency + ", books=" + books.size() + ")");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            workers.shutdownNow();
+            logger.info("Bookstore stub server stopped.");
+        }
+    }
+
+    public String getBaseUri() {
+        return "http://127.0.0.1:" + (server == null ? port : server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] requestBody = readFully(exchange.getRequestBody());
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+
+            Endpoint endpoint = resolve(method, path);
+            if (endpoint == null) {
+                send(exchange, 404, Map.of("detail", "Not Found"));
+                return;
+            }
+            simulateServiceTime(endpoint);
+
+            switch (endpoint) {
+                case HEALTH:
+                    send(exchange, 200, Map.of("status", "up"));
+                    break;
+                case SIGNUP:
+                    signup(exchange, requestBody);
+                    break;
+                case LOGIN:
+                    login(exchange, requestBody);
+                    break;
+                default:
+                    if (authenticate(exchange)) {
+                        handleBooks(exchange, endpoint, path, exchange.getRequestURI().getRawQuery(), requestBody);
+                    }
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            logger.error("Stub server failed to handle " + exchange.getRequestURI() + ": " + e);
+            sendText(exchange, 500, "Internal Server Error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Endpoint resolve(String method, String path) {
+        if (path.equals("/books")) {
+            path = BOOKS_PREFIX;
+        }
+        if (path.startsWith(BOOKS_PREFIX) && path.length() > BOOKS_PREFIX.length()) {
+            path = "/books/{id}";
+        }
+        return Endpoint.of(method, path);
+    }
+
+    // --- /signup and /login ---
+
+    private void signup(HttpExchange exchange, byte[] body) throws IOException {
+        Map<String, Object> payload = readMap(body);
+        Object email = payload.get("email");
+        Object password = payload.get("password");
+        // The real API answers missing or malformed credentials with a bare 500
+        if (!(email instanceof String) || !(password instanceof String) || !((String) email).contains("@")) {
+            sendText(exchange, 500, "Internal Server Error");
+            return;
+        }
+        if (passwordsByEmail.putIfAbsent((String) email, (String) password) != null) {
+            send(exchange, 400, Map.of("detail", "Email already registered"));
+            return;
+        }
+        send(exchange, 200, Map.of("message", "User created successfully"));
+    }
+
+    private void login(HttpExchange exchange, byte[] body) throws IOException {
+        Map<String, Object> payload = readMap(body);
+        Object email = payload.get("email");
+        String password = email instanceof String ? passwordsByEmail.get(email) : null;
+        if (password == null || !password.equals(payload.get("password"))) {
+            send(exchange, 400, Map.of("detail", "Incorrect email or password"));
+            return;
+        }
+        send(exchange, 200, new AuthToken(issueToken((String) email), "bearer"));
+    }
+
+    // --- /books ---
+
+    private void handleBooks(HttpExchange exchange, Endpoint endpoint, String path, String query, byte[] body) throws IOException {
+        switch (endpoint) {
+            case LIST_BOOKS:
+                // FastAPI-style paging: ?skip=N&limit=M, both optional
+                Map<String, String> params = parseQuery(query);
+                Integer skip = parseId(params.getOrDefault("skip", "0"));
+                Integer limit = parseId(params.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE)));
+                if (skip == null || limit == null || skip < 0 || limit < 0) {
+                    send(exchange, 422, Map.of("detail", "skip and limit must be non-negative integers"));
+                    return;
+                }
+                send(exchange, 200, books.values().stream().skip(skip).limit(limit).collect(Collectors.toList()));
+                return;
+            case CREATE_BOOK:
+                Book created = mapper.readValue(body, Book.class);
+                created.setId(bookIdSequence.incrementAndGet());
+                books.put(created.getId(), created);
+                send(exchange, 200, created);
+                return;
+            default:
+                break;
+        }
+
+        Integer bookId = parseId(path.substring(BOOKS_PREFIX.length()));
+        if (bookId == null || !books.containsKey(bookId)) {
+            send(exchange, 404, Map.of("detail", "Book not found"));
+            return;
+        }
+        switch (endpoint) {
+            case GET_BOOK:
+                send(exchange, 200, books.get(bookId));
+                break;
+            case UPDATE_BOOK:
+                Book updated = mapper.readValue(body, Book.class);
+                updated.setId(bookId);
+                books.put(bookId, updated);
+                send(exchange, 200, updated);
+                break;
+            case DELETE_BOOK:
+                books.remove(bookId);
+                send(exchange, 200, Map.of("message", "Book deleted successfully"));
+                break;
+            default:
+                send(exchange, 405, Map.of("detail", "Method Not Allowed"));
+        }
+    }
+
+    // --- helpers ---
+
+    // Mirrors FastAPI's HTTPBearer: no header -> 403, bad or expired token -> 401
+    private boolean authenticate(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            send(exchange, 403, Map.of("detail", "Not authenticated"));
+            return false;
+        }
+        if (!isValidToken(header.substring("Bearer ".length()))) {
+            send(exchange, 401, Map.of("detail", "Invalid or expired token"));
+            return false;
+        }
+        return true;
+    }
+
+    // HS256 JWT with "sub" and "exp" claims
+    private String issueToken(String email) throws IOException {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", email);
+        claims.put("exp", System.currentTimeMillis() / 1000 + tokenTtlSeconds);
+        String header = base64Url(mapper.writeValueAsBytes(Map.of("alg", "HS256", "typ", "JWT")));
+        String payload = base64Url(mapper.writeValueAsBytes(claims));
+        return header + "." + payload + "." + base64Url(sign(header + "." + payload));
+    }
+
+    private boolean isValidToken(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !parts[2].equals(base64Url(sign(parts[0] + "." + parts[1])))) {
+            return false;
+        }
+        try {
+            Map<String, Object> claims = mapper.readValue(Base64.getUrlDecoder().decode(parts[1]), new TypeReference<Map<String, Object>>() { });
+            return ((Number) claims.get("exp")).longValue() > System.currentTimeMillis() / 1000;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private byte[] sign(String content) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            return mac.doFinal(content.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private void simulateServiceTime(Endpoint endpoint) {
+        long millis = serviceTimeMillis.getOrDefault(endpoint, 0L);
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Map<String, Object> readMap(byte[] body) throws IOException {
+        return body.length == 0 ? Map.of() : mapper.readValue(body, new TypeReference<Map<String, Object>>() { });
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        write(exchange, status, JSON, mapper.writeValueAsBytes(body));
+    }
+
+    private void sendText(HttpExchange exchange, int status, String body) throws IOException {
+        write(exchange, status, "text/plain; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(HttpExchange exchange, int status, String contentType, byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static Integer parseId(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Standalone mode, e.g. to load-test the harness from another JVM: BookstoreStubServer [port] [workers] [books]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int dataset = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        new BookstoreStubServer(port, workers, 1800).withDataset(dataset).start();
+    }
+}
@@ -0,0 +1,65 @@
+package com.bkstore.fastapi.stub;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.io.IOException;
+import java.net.URI;
+
+// Starts the in-JVM BookstoreStubServer before the suite when stub.enabled=true, e.g.
+//   mvn test -Dstub.enabled=true
+// The stub listens on the port of the configured base.uri, so the tests need no other change.
+public class StubServerListener implements ISuiteListener {
+
+    private static final Logger logger = LogManager.getLogger(StubServerListener.class);
+
+    // One server per JVM, shared by every suite that runs in it
+    private static BookstoreStubServer server;
+
+    @Override
+    public void onStart(ISuite suite) {
+        BookstoreStubServer stub = startIfEnabled();
+        if (stub != null) {
+            logger.info("Suite '" + suite.getName() + "' runs against the bookstore stub server at " + stub.getBaseUri());
+        }
+    }
+
+    // Starts the stub once per JVM when stub.enabled=true and returns it, or null when the stub is disabled.
+    // Also used by ShardLauncher, whose shards then share a single stub.
+    public static synchronized BookstoreStubServer startIfEnabled() {
+        if (server != null || !Boolean.parseBoolean(ConfigReader.getProperty("stub.enabled", "false"))) {
+            return server;
+        }
+
+        String baseUri = ConfigReader.getProperty("base.uri", "http://127.0.0.1:8000");
+        int port = ConfigReader.getIntProperty("stub.port", URI.create(baseUri).getPort());
+        BookstoreStubServer stub = new BookstoreStubServer(port,
+                ConfigReader.getIntProperty("stub.concurrency", 16),
+                ConfigReader.getIntProperty("stub.token.ttl.seconds", 1800));
+
+        int defaultServiceTime = ConfigReader.getIntProperty("stub.service.time.ms.default", 0);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stub.withServiceTime(endpoint, ConfigReader.getIntProperty("stub.service.time.ms." + endpoint.configKey(), defaultServiceTime));
+        }
+        stub.withSigningSecret(ConfigReader.getProperty("stub.jwt.secret", "bookstore-stub-secret"));
+        stub.withDataset(ConfigReader.getIntProperty("stub.dataset.size", 0));
+
+        try {
+            stub.start();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start bookstore stub server on port " + port + ": " + e.getMessage(), e);
+        }
+        server = stub;
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::stop, "stub-server-shutdown"));
+        return stub;
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        // Left running until JVM exit: several suites may share the server
+    }
+}
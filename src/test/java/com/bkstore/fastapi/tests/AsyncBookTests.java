@@ -0,0 +1,89 @@
+package com.bkstore.fastapi.tests;
+
+import com.bkstore.fastapi.api.auth.TokenManager;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.services.AsyncApiClient;
+import com.bkstore.fastapi.api.services.AsyncBookService;
+import com.bkstore.fastapi.common.BaseTest;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.TestConfig;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Exercises the non-blocking service layer: many requests in flight at once from a few client threads
+public class AsyncBookTests extends BaseTest {
+
+    private static final Logger logger = LogManager.getLogger(AsyncBookTests.class);
+    private static final int FAN_OUT = 20;
+
+    private AsyncApiClient client;
+    private AsyncBookService asyncBookService;
+    private String authToken;
+
+    @BeforeClass
+    public void setupAsyncClient() {
+        client = new AsyncApiClient(ConfigReader.getProperty("base.uri"),
+                HttpClient.Version.valueOf(ConfigReader.getProperty("async.http.version", "HTTP_2")),
+                TestConfig.get().getConnectTimeout(), TestConfig.get().getReadTimeout(),
+                TestConfig.get().getAsyncClientThreads());
+        asyncBookService = new AsyncBookService();
+        authToken = TokenManager.getInstance().getToken(requestSpec, TokenManager.DEFAULT_USER);
+    }
+
+    @Test(description = "Verify concurrent POST, GET and DELETE /books/{id} through the async service layer")
+    public void testFanOutBookCrud_Positive() {
+        logger.info("Executing testFanOutBookCrud_Positive with " + FAN_OUT + " concurrent books");
+
+        // Fire all creates at once, then wait for every one of them
+        List<CompletableFuture<HttpResponse<String>>> creates = new ArrayList<>();
+        for (int i = 0; i < FAN_OUT; i++) {
+            Book book = new Book(Shard.bookName("Async Book " + i), "async@example.com", 2000 + i, "Created concurrently, request " + i);
+            creates.add(asyncBookService.createBook(client, book, authToken));
+        }
+        List<Integer> bookIds = new ArrayList<>();
+        for (CompletableFuture<HttpResponse<String>> create : creates) {
+            HttpResponse<String> response = create.join();
+            Assert.assertEquals(response.statusCode(), 200, "Create failed: " + response.body());
+            bookIds.add(client.readBody(response, Book.class).getId());
+        }
+
+        // Fan-out GETs for every created book
+        List<CompletableFuture<HttpResponse<String>>> gets = new ArrayList<>();
+        for (Integer bookId : bookIds) {
+            gets.add(asyncBookService.getBook(client, bookId, authToken));
+        }
+        for (int i = 0; i < gets.size(); i++) {
+            HttpResponse<String> response = gets.get(i).join();
+            Assert.assertEquals(response.statusCode(), 200, "Get failed: " + response.body());
+            Assert.assertEquals(client.readBody(response, Book.class).getId(), bookIds.get(i), "Book ID mismatch");
+        }
+
+        // Clean up concurrently as well
+        CompletableFuture<?>[] deletes = bookIds.stream()
+                .map(bookId -> asyncBookService.deleteBook(client, bookId, authToken)
+                        .thenAccept(response -> Assert.assertEquals(response.statusCode(), 200, "Delete failed: " + response.body())))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(deletes).join();
+        logger.info("testFanOutBookCrud_Positive PASSED.");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void closeAsyncClient() {
+        if (client != null) {
+            client.close();
+        }
+    }
+}
@@ -1,18 +1,13 @@
 package com.bkstore.fastapi.tests;
 
+import com.bkstore.fastapi.api.auth.AuthSession;
+import com.bkstore.fastapi.api.auth.TokenManager;
 import com.bkstore.fastapi.api.endpoints.Routes;
-import com.bkstore.fastapi.api.payloads.AuthToken;
 import com.bkstore.fastapi.api.payloads.Book;
-import com.bkstore.fastapi.api.payloads.UserLogin;
-import com.bkstore.fastapi.api.payloads.UserSignup;
-import com.bkstore.fastapi.api.services.AuthService;
 import com.bkstore.fastapi.api.services.BookService;
 import com.bkstore.fastapi.common.BaseTest;
-import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.sharding.Shard;
 
-import io.restassured.builder.RequestSpecBuilder;
-import io.restassured.filter.log.LogDetail;
-import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 import org.testng.annotations.BeforeClass;
@@ -22,8 +17,8 @@ import org.testng.SkipException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.hamcrest.Matchers.*;
 import static io.restassured.RestAssured.given;
@@ -31,68 +26,34 @@ import static io.restassured.RestAssured.given;
 public class BookTests extends BaseTest {
 
     private static final Logger logger = LogManager.getLogger(BookTests.class);
-    private AuthService authService;
     private BookService bookService;
 
-    private static String currentAuthToken = null; // Stores authentication token after successful login
-    private static String currentUserEmail = null; // Stores the email of the user who authenticated
-    private static int createdBookId; // Stores ID of the book created in positive test for chaining
+    // Set once in @BeforeClass and only read afterwards, so test methods can safely run in parallel
+    private volatile String currentAuthToken = null; // Stores authentication token of the shared session
+    private volatile String currentUserEmail = null; // Stores the email of the user who authenticated
 
     @BeforeClass // Runs once before all test methods in this class
     public void setupAuthenticationAndServices() {
         // Initialize service classes
-        authService = new AuthService();
         bookService = new BookService();
 
-        logger.info("BookTests setup: Initiating user signup and login to obtain authentication token.");
-
-        // Generate unique user details for signup
-        Integer signupUserId = ThreadLocalRandom.current().nextInt(1000, 100000);
-        String signupUserEmail = "book_test_user_" + UUID.randomUUID().toString().substring(0, 8) + "@example.com";
-        String signupUserPassword = "BookTestPassword123!";
-        currentUserEmail = signupUserEmail; // Store the email for test data
-
-        // Create signup payload
-        UserSignup signupPayload = new UserSignup(signupUserId, signupUserEmail, signupUserPassword);
-        logger.info("Attempting to sign up user: " + signupUserEmail);
-        // Call signup API using the base (unauthenticated) requestSpec
-        Response signupResponse = authService.signupUser(requestSpec, signupPayload);
-
-        // Handle signup response
-        if (signupResponse.statusCode() == 200) {
-            logger.info("User signed up successfully: " + signupUserEmail);
-        } else if (signupResponse.statusCode() == 409) {
-            logger.warn("User '" + signupUserEmail + "' already exists. Proceeding to login.");
-        } else {
-            logger.error("User signup failed with status: " + signupResponse.statusCode() + ". Response: " + signupResponse.asString());
-            // Skip all tests in this class if signup fails
-            throw new SkipException("Failed to sign up user for BookTests authentication. Skipping all Book tests.");
-        }
-
-        // Create login payload using signup details
-        UserLogin loginPayload = new UserLogin(signupUserId, signupUserEmail, signupUserPassword);
-        logger.info("Attempting to log in user: " + signupUserEmail);
-        // Call login API using the base (unauthenticated) requestSpec
-        Response loginResponse = authService.loginUser(requestSpec, loginPayload);
-
-        // Handle login response
-        if (loginResponse.statusCode() == 200) {
-            // Extract token from response
-            AuthToken tokenObject = loginResponse.as(AuthToken.class);
-            currentAuthToken = tokenObject.getAccessToken();
-            // Check if token is valid
-            if (currentAuthToken != null && !currentAuthToken.isEmpty()) {
-                logger.info("Successfully obtained Auth Token for " + signupUserEmail + ". Token (first 10 chars): " + currentAuthToken.substring(0, Math.min(currentAuthToken.length(), 10)) + "...");
-                // IMPORTANT: Do NOT modify the static 'requestSpec' here.
-                // The token will be passed to BookService methods for each authenticated request.
-            } else {
-                logger.error("Auth Token is null or empty after login.");
-                throw new SkipException("Failed to obtain a valid authentication token. Skipping all Book tests.");
-            }
-        } else {
-            logger.error("User login failed with status: " + loginResponse.statusCode() + ". Response: " + loginResponse.asString());
-            throw new SkipException("Failed to log in user for BookTests authentication. Skipping all Book tests.");
+        logger.info("BookTests setup: Obtaining the shared authentication session.");
+
+        // The TokenManager reuses a cached (or persisted) token until shortly before it expires,
+        // so signup and login only happen when no valid session exists yet
+        AuthSession session;
+        try {
+            session = TokenManager.getInstance().getSession(requestSpec, TokenManager.DEFAULT_USER);
+        } catch (RuntimeException e) {
+            logger.error("Could not obtain an authenticated session: " + e.getMessage());
+            // Skip all tests in this class if authentication fails
+            throw new SkipException("Failed to authenticate for BookTests. Skipping all Book tests.");
         }
+        currentUserEmail = session.getEmail(); // Store the email for test data
+        currentAuthToken = session.getAccessToken();
+        logger.info("Using Auth Token for " + currentUserEmail + ". Token (first 10 chars): " + currentAuthToken.substring(0, Math.min(currentAuthToken.length(), 10)) + "...");
+        // IMPORTANT: Do NOT modify the static 'requestSpec' here.
+        // The token will be passed to BookService methods for each authenticated request.
         logger.info("Authentication setup for BookTests completed successfully.");
     }
 
@@ -107,7 +68,7 @@ public class BookTests extends BaseTest {
         }
 
         // Generate dynamic book data for payload
-        String bookName = "Test Book " + UUID.randomUUID().toString().substring(0, 6);
+        String bookName = Shard.bookName("Test Book " + UUID.randomUUID().toString().substring(0, 6));
         // Use currentUserEmail as the author
         String author = currentUserEmail;
         Integer publishedYear = ThreadLocalRandom.current().nextInt(1900, 2025);
@@ -120,7 +81,7 @@ public class BookTests extends BaseTest {
 
         // Assertions for successful book creation
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .spec(responseSpec) // Apply common response validations (e.g., status 200, JSON content)
             .body("id", notNullValue()) // Assert 'id' is present
             .body("name", equalTo(bookName)) // Assert 'name' matches
@@ -128,42 +89,46 @@ public class BookTests extends BaseTest {
             .body("published_year", equalTo(publishedYear)) // Assert 'published_year' matches
             .body("book_summary", equalTo(bookSummary)); // Assert 'book_summary' matches
 
-        // Store the created book's ID for chaining in subsequent tests
-        createdBookId = response.path("id");
+        // Books no test deletes are removed at suite end by TestDataRegistry
+        int createdBookId = response.path("id");
         logger.info("Book created with ID: " + createdBookId + ". Name: " + bookName);
         logger.info("testCreateBook_Positive PASSED.");
     }
 
-    @Test(description = "Verify GET /books/{id} retrieves the created book with authentication", priority = 2, dependsOnMethods = {"testCreateBook_Positive"})
+    @Test(description = "Verify GET /books/{id} retrieves the created book with authentication", priority = 2)
     public void testGetBookById_Positive() {
-        logger.info("Executing testGetBookById_Positive for Book ID: " + createdBookId);
-        // Skip test if authentication token or created book ID is not available
-        if (currentAuthToken == null || createdBookId == 0) {
-            throw new SkipException("Authentication token or createdBookId not available. Skipping test.");
+        // Skip test if authentication token is not available
+        if (currentAuthToken == null) {
+            throw new SkipException("Authentication token not available. Skipping test.");
         }
+        // Each test owns its book, so it does not depend on testCreateBook_Positive having run first
+        Book fixture = createBookFixture();
+        int createdBookId = fixture.getId();
+        logger.info("Executing testGetBookById_Positive for Book ID: " + createdBookId);
 
         // Call get book by ID API, passing base requestSpec, book ID, and authentication token
         Response response = bookService.getBook(requestSpec, createdBookId, currentAuthToken);
 
         // Assertions for successful book retrieval
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .spec(responseSpec) // Apply common response validations
             .body("id", equalTo(createdBookId)) // Assert ID matches
-            .body("name", notNullValue()); // Assert 'name' is present
+            .body("name", equalTo(fixture.getName())); // Assert 'name' matches the book this test created
         logger.info("testGetBookById_Positive PASSED.");
     }
 
-    @Test(description = "Verify PUT /books/{id} updates an existing book with authentication", priority = 3, dependsOnMethods = {"testCreateBook_Positive"})
+    @Test(description = "Verify PUT /books/{id} updates an existing book with authentication", priority = 3)
     public void testUpdateBookById_Positive() {
-        logger.info("Executing testUpdateBookById_Positive for Book ID: " + createdBookId);
-        // Skip test if authentication token or created book ID is not available
-        if (currentAuthToken == null || createdBookId == 0) {
-            throw new SkipException("Authentication token or createdBookId not available. Skipping test.");
+        // Skip test if authentication token is not available
+        if (currentAuthToken == null) {
+            throw new SkipException("Authentication token not available. Skipping test.");
         }
+        int createdBookId = createBookFixture().getId();
+        logger.info("Executing testUpdateBookById_Positive for Book ID: " + createdBookId);
 
         // Generate updated book data
-        String updatedBookName = "Updated Test Book " + UUID.randomUUID().toString().substring(0, 6);
+        String updatedBookName = Shard.bookName("Updated Test Book " + UUID.randomUUID().toString().substring(0, 6));
         // Use currentUserEmail as the author
         String updatedAuthor = currentUserEmail;
         Integer updatedPublishedYear = ThreadLocalRandom.current().nextInt(2000, 2024);
@@ -177,7 +142,7 @@ public class BookTests extends BaseTest {
 
         // Assertions for successful book update
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .spec(responseSpec) // Apply common response validations
             .body("id", equalTo(createdBookId)) // Assert ID matches
             .body("name", equalTo(updatedBookName)) // Assert 'name' matches
@@ -187,20 +152,21 @@ public class BookTests extends BaseTest {
         logger.info("testUpdateBookById_Positive PASSED.");
     }
 
-    @Test(description = "Verify DELETE /books/{id} deletes a book with authentication", priority = 4, dependsOnMethods = {"testCreateBook_Positive"})
+    @Test(description = "Verify DELETE /books/{id} deletes a book with authentication", priority = 4)
     public void testDeleteBookById_Positive() {
-        logger.info("Executing testDeleteBookById_Positive for Book ID: " + createdBookId);
-        // Skip test if authentication token or created book ID is not available
-        if (currentAuthToken == null || createdBookId == 0) {
-            throw new SkipException("Authentication token or createdBookId not available. Skipping test.");
+        // Skip test if authentication token is not available
+        if (currentAuthToken == null) {
+            throw new SkipException("Authentication token not available. Skipping test.");
         }
+        int createdBookId = createBookFixture().getId();
+        logger.info("Executing testDeleteBookById_Positive for Book ID: " + createdBookId);
 
         // Call delete book API, passing base requestSpec, book ID, and authentication token
         Response response = bookService.deleteBook(requestSpec, createdBookId, currentAuthToken);
 
         // Assertions for successful book deletion
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(200)
             .body("message",equalTo("Book deleted successfully")); // Expect 204 No Content for successful deletion
 
@@ -209,7 +175,7 @@ public class BookTests extends BaseTest {
         Response allBooksResponse = bookService.getBook(requestSpec, createdBookId, currentAuthToken);
 
         allBooksResponse.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(404) // Expect 200 OK for getting a valid book
             .body("detail",equalTo("Book not found")); // Assert that the list of IDs does NOT contain the deleted book's ID
         logger.info("testDeleteBookById_Positive PASSED.");
@@ -228,7 +194,7 @@ public class BookTests extends BaseTest {
 
         // Assertions for successful retrieval of all books
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .spec(responseSpec) // Apply common response validations
             .body("$", instanceOf(java.util.List.class)) // Assert response is a JSON array
             .body("size()", greaterThanOrEqualTo(0)); // Assert array is not empty or has expected size
@@ -242,7 +208,7 @@ public class BookTests extends BaseTest {
         logger.info("Executing testCreateBook_NoAuth_Negative");
 
         // Generate dynamic book data for payload - the unauthorized request
-        String bookName = "Test Book " + UUID.randomUUID().toString().substring(0, 6);
+        String bookName = Shard.bookName("Test Book " + UUID.randomUUID().toString().substring(0, 6));
         // Use currentUserEmail as the author
         String author = currentUserEmail;
         Integer publishedYear = ThreadLocalRandom.current().nextInt(1900, 2025);
@@ -251,11 +217,7 @@ public class BookTests extends BaseTest {
         Book newBook = new Book(bookName, author, publishedYear, bookSummary);
 
         // Create a new RequestSpecification *without* the Authorization header for this specific test
-        RequestSpecification unauthenticatedRequestSpec = new RequestSpecBuilder()
-            .setBaseUri(ConfigReader.getProperty("base.uri"))
-            .setContentType(ContentType.JSON)
-            .log(LogDetail.ALL)
-            .build();
+        RequestSpecification unauthenticatedRequestSpec = baseRequestSpecBuilder().build();
 
         // Call create book API, explicitly passing null for the token to simulate no authentication
         // The BookService method will attempt to not supply Auth in header, which should result in 401.
@@ -266,7 +228,7 @@ public class BookTests extends BaseTest {
                     .post(Routes.POST_BOOKS);
                 
                 response.then()
-                    .log().all()
+                    .log().ifValidationFails()
                     .statusCode(403) // Expect 403 Forbidden status
                     .body("detail", equalTo("Not authenticated")); // Assert specific error message         
        
@@ -292,7 +254,7 @@ public class BookTests extends BaseTest {
         Response response = bookService.getBook(requestSpec, nonExistentId, currentAuthToken);
 
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(404) // Expect 404 Not Found status
             .body("detail", containsString("Book not found")); // Assert specific error message
         logger.info("testGetBookById_NotFound_Negative PASSED.");
@@ -311,9 +273,26 @@ public class BookTests extends BaseTest {
         Response response = bookService.deleteBook(requestSpec, nonExistentId, currentAuthToken);
 
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(404) // Expect 404 Not Found status
             .body("detail", containsString("Book not found")); // Assert specific error message
         logger.info("testDeleteBookById_NotFound_Negative PASSED.");
     }
-}
\ No newline at end of file
+
+    // --- Fixtures ---
+
+    // Creates a book owned by the calling test method and returns it with its server-assigned ID; the suite-end
+    // TestDataRegistry cleanup deletes it
+    private Book createBookFixture() {
+        String bookName = Shard.bookName("Fixture Book " + UUID.randomUUID().toString().substring(0, 6));
+        Book fixture = new Book(bookName, currentUserEmail, ThreadLocalRandom.current().nextInt(1900, 2025), "Fixture book for " + bookName);
+
+        Response response = bookService.createBook(requestSpec, fixture, currentAuthToken);
+        response.then()
+            .spec(responseSpec)
+            .body("id", notNullValue());
+
+        fixture.setId(response.path("id"));
+        return fixture;
+    }
+}
@@ -0,0 +1,185 @@
+package com.bkstore.fastapi.tests;
+
+import com.bkstore.fastapi.api.auth.TokenManager;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.services.BookBatchService;
+import com.bkstore.fastapi.api.services.BookService;
+import com.bkstore.fastapi.api.services.PagedBookReader;
+import com.bkstore.fastapi.common.BaseTest;
+import com.bkstore.fastapi.utilities.BookDataFactory;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.equalTo;
+
+// Exercises the book endpoints against a catalog of realistic size (catalog.size books, created in bulk with a
+// bounded in-flight window and removed afterwards).
+// Run with: mvn test -DsuiteXmlFile=src/test/resources/testsuites/catalog_suite.xml
+public class CatalogTests extends BaseTest {
+
+    private static final Logger logger = LogManager.getLogger(CatalogTests.class);
+    private static final String CATALOG_USER = "catalog";
+    // Books compared field by field with what the factory generated
+    private static final int VERIFIED_SAMPLE = 100;
+
+    private final BookService bookService = new BookService();
+    private final BookBatchService batchService = new BookBatchService();
+
+    private BookDataFactory factory;
+    private String namePrefix;
+    private String authToken;
+    private int maxInFlight;
+    private int[] bookIds = new int[0];
+
+    @BeforeClass
+    public void createCatalog() {
+        int size = ConfigReader.getIntProperty("catalog.size", 10000);
+        maxInFlight = ConfigReader.getIntProperty("catalog.max.in.flight", 16);
+        try {
+            authToken = TokenManager.getInstance().getToken(requestSpec, CATALOG_USER);
+        } catch (RuntimeException e) {
+            logger.error("Could not obtain an authenticated session: " + e.getMessage());
+            throw new SkipException("Failed to authenticate for CatalogTests. Skipping all catalog tests.");
+        }
+
+        // The prefix tells this run's books apart from anything else in the catalog
+        namePrefix = "catalog-" + Long.toString(System.currentTimeMillis(), 36) + " ";
+        factory = new BookDataFactory(ConfigReader.getIntProperty("catalog.seed", 20240601), namePrefix);
+        logger.info("Creating a catalog of " + size + " books (seed " + factory.getSeed() + ", " + maxInFlight + " in flight).");
+        bookIds = batchService.createBooks(requestSpec, authToken, factory, 0, size, maxInFlight);
+    }
+
+    @Test(description = "Verify GET /books/ returns every book of a large catalog, read as a stream", priority = 1)
+    public void testListBooks_WholeCatalog() {
+        long start = System.nanoTime();
+        Response response = bookService.getAllBooksStreaming(requestSpec, authToken);
+        // Checked on the response itself: then() would read the whole body before validating
+        Assert.assertEquals(response.getStatusCode(), 200, "GET /books/ status code");
+        Assert.assertTrue(ContentType.JSON.matches(response.getContentType()), "GET /books/ content type: " + response.getContentType());
+
+        // Every book of this run is checked against what the factory generated while the body is parsed,
+        // so memory use does not grow with the catalog
+        long listed = 0;
+        long ours = 0;
+        try (Stream<Book> books = BookService.books(response)) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                listed++;
+                if (!isOurs(book)) {
+                    continue;
+                }
+                ours++;
+                int index = indexOf(book);
+                Book expected = factory.book(index);
+                Assert.assertEquals(book.getId(), Integer.valueOf(bookIds[index]), "Id of listed book " + index);
+                Assert.assertEquals(book.getAuthor(), expected.getAuthor(), "Author of listed book " + index);
+                Assert.assertEquals(book.getPublished_year(), expected.getPublished_year(), "Year of listed book " + index);
+                Assert.assertEquals(book.getBook_summary(), expected.getBook_summary(), "Summary of listed book " + index);
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("GET /books/ streamed " + listed + " books in " + elapsedMillis + "ms.");
+        Assert.assertEquals(ours, bookIds.length, "Books of this run listed by GET /books/");
+    }
+
+    @Test(description = "Verify books created in bulk are stored exactly as generated", priority = 2)
+    public void testGetBook_MatchesGeneratedData() {
+        if (bookIds.length == 0) {
+            throw new SkipException("catalog.size is 0, nothing to verify.");
+        }
+        // Evenly spread sample, so the start, middle and end of the batch are all checked
+        int samples = Math.min(VERIFIED_SAMPLE, bookIds.length);
+        for (int s = 0; s < samples; s++) {
+            int index = (int) ((long) s * bookIds.length / samples);
+            Book expected = factory.book(index);
+            bookService.getBook(requestSpec, bookIds[index], authToken).then()
+                    .log().ifValidationFails()
+                    .spec(responseSpec)
+                    .body("id", equalTo(bookIds[index]))
+                    .body("name", equalTo(expected.getName()))
+                    .body("author", equalTo(expected.getAuthor()))
+                    .body("published_year", equalTo(expected.getPublished_year()))
+                    .body("book_summary", equalTo(expected.getBook_summary()));
+        }
+    }
+
+    @Test(description = "Verify the data factory is deterministic per seed", priority = 3)
+    public void testBookDataFactory_Deterministic() {
+        BookDataFactory same = new BookDataFactory(factory.getSeed(), namePrefix);
+        BookDataFactory other = new BookDataFactory(factory.getSeed() + 1, namePrefix);
+        for (long index : new long[]{0, 1, 4242, 999_999}) {
+            Book a = factory.book(index);
+            Book b = same.book(index);
+            Assert.assertEquals(b.getName(), a.getName(), "Name of book " + index);
+            Assert.assertEquals(b.getAuthor(), a.getAuthor(), "Author of book " + index);
+            Assert.assertEquals(b.getPublished_year(), a.getPublished_year(), "Year of book " + index);
+            Assert.assertEquals(b.getBook_summary(), a.getBook_summary(), "Summary of book " + index);
+            Assert.assertNotEquals(other.book(index).getBook_summary() + other.book(index).getAuthor(),
+                    a.getBook_summary() + a.getAuthor(), "Another seed should give another book " + index);
+        }
+    }
+
+    @Test(description = "Verify serial and parallel paged walks see every book of the catalog exactly once", priority = 4)
+    public void testPagedReader_WholeCatalog() {
+        PagedBookReader reader = new PagedBookReader(requestSpec, authToken,
+                ConfigReader.getIntProperty("catalog.page.size", 500), ConfigReader.getIntProperty("catalog.page.prefetch", 2));
+
+        long start = System.nanoTime();
+        Map<Boolean, Long> serialCounts;
+        try (Stream<Book> books = reader.stream()) {
+            serialCounts = books.collect(Collectors.partitioningBy(this::isOurs, Collectors.counting()));
+        }
+        long serialMillis = (System.nanoTime() - start) / 1_000_000;
+        int pagesSerial = reader.getPagesFetched();
+
+        // Each book of this run must come up exactly once, whichever thread fetched its page
+        AtomicIntegerArray timesSeen = new AtomicIntegerArray(bookIds.length);
+        start = System.nanoTime();
+        reader.parallelStream().filter(this::isOurs).forEach(book -> {
+            int index = indexOf(book);
+            Assert.assertEquals(book.getId(), Integer.valueOf(bookIds[index]), "Id of paged book " + index);
+            Assert.assertEquals(book.getAuthor(), factory.book(index).getAuthor(), "Author of paged book " + index);
+            timesSeen.incrementAndGet(index);
+        });
+        long parallelMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Paged walk of " + reader.size() + " books: serial " + serialMillis + "ms (" + pagesSerial + " pages), parallel "
+                + parallelMillis + "ms (" + (reader.getPagesFetched() - pagesSerial) + " pages).");
+
+        Assert.assertEquals(serialCounts.get(true) + serialCounts.get(false), reader.size(), "Books seen by the serial walk");
+        Assert.assertEquals(serialCounts.get(true).longValue(), bookIds.length, "Books of this run seen by the serial walk");
+        for (int index = 0; index < bookIds.length; index++) {
+            Assert.assertEquals(timesSeen.get(index), 1, "Times the parallel walk saw book " + index);
+        }
+    }
+
+    private boolean isOurs(Book book) {
+        return book.getName() != null && book.getName().startsWith(namePrefix);
+    }
+
+    // Position of one of this run's books in the factory sequence, from the " #<index>" name suffix
+    private static int indexOf(Book book) {
+        return Integer.parseInt(book.getName().substring(book.getName().lastIndexOf('#') + 1));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deleteCatalog() {
+        if (bookIds.length > 0) {
+            batchService.deleteBooks(requestSpec, authToken, bookIds, maxInFlight);
+        }
+    }
+}
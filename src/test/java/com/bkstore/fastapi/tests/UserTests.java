@@ -5,17 +5,15 @@ import com.bkstore.fastapi.api.payloads.UserLogin;
 import com.bkstore.fastapi.api.payloads.UserSignup;
 import com.bkstore.fastapi.api.services.AuthService;
 import com.bkstore.fastapi.common.BaseTest; // Extend BaseTest
+import com.bkstore.fastapi.sharding.Shard;
 
 import io.restassured.response.Response;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
-import org.testng.SkipException; // For conditional skipping
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.UUID;
 
 import static org.hamcrest.Matchers.*;
 
@@ -25,11 +23,7 @@ public class UserTests extends BaseTest {
     private static final Logger logger = LogManager.getLogger(UserTests.class); // Logger for this class
     private AuthService authService; // Service layer for auth operations
 
-    // Static variables to store details of the user for request chaining
-    private static Integer signedUpUserId = null;
-    private static String signedUpUserEmail = null;
-    private static String signedUpUserPassword = null;
-    private static String authTokenFromLogin = null; // Stores the access token after successful chained login
+    // No shared user state: every test signs up the user it needs, so methods can run in parallel
 
     @BeforeClass // Runs once before any test method in this class
     public void setupAuthService() {
@@ -46,8 +40,8 @@ public class UserTests extends BaseTest {
     public void testUserSignup_Positive() {
         logger.info("Executing testUserSignup_Positive: Creating a new user.");
 
-        Integer randomId = ThreadLocalRandom.current().nextInt(1000, 100000); // Generate a random ID
-        String uniqueEmail = "user_" + UUID.randomUUID().toString().substring(0, 8) + "@example.com"; // Generate unique email
+        Integer randomId = Shard.userId(); // Generate a random ID
+        String uniqueEmail = Shard.uniqueEmail("user"); // Generate unique email
         String password = "UserPassword@123"; // Strong password
 
         // Create UserSignup payload
@@ -59,30 +53,22 @@ public class UserTests extends BaseTest {
 
         // Assertions for positive signup
         response.then()
-            .log().all() // Log entire request and response for debugging
+            .log().ifValidationFails() // Log the response only when an assertion fails
             .statusCode(200) // Assuming 200 OK for successful creation as per your previous logs
             .body("message", equalTo("User created successfully")); // Adjust based on actual API response
 
-        // Store details for subsequent chained tests
-        signedUpUserId = randomId;
-        signedUpUserEmail = uniqueEmail;
-        signedUpUserPassword = password;
-
-        logger.info("User signup successful. User ID: " + signedUpUserId + ", Email: " + signedUpUserEmail);
-        logger.info("testUserSignup_Positive PASSED. Details stored for chaining.");
+        logger.info("User signup successful. User ID: " + randomId + ", Email: " + uniqueEmail);
+        logger.info("testUserSignup_Positive PASSED.");
     }
 
-    @Test(description = "Negative: POST /signup with existing email returns 400 status", priority = 2, dependsOnMethods = {"testUserSignup_Positive"})
+    @Test(description = "Negative: POST /signup with existing email returns 400 status", priority = 2)
     public void testUserSignup_ExistingEmail_Negative() {
-        // Skip this test if the prerequisite positive signup failed
-        if (signedUpUserEmail == null) {
-            logger.warn("Skipping testUserSignup_ExistingEmail_Negative: Pre-requisite user email not available.");
-            throw new SkipException("Pre-requisite user signup failed or email not stored.");
-        }
+        // Sign up the user whose email is then reused
+        String signedUpUserEmail = signupFixtureUser().getEmail();
 
         logger.info("Executing testUserSignup_ExistingEmail_Negative with email: " + signedUpUserEmail);
 
-        Integer randomId = ThreadLocalRandom.current().nextInt(1000, 100000); // New random ID for the attempt
+        Integer randomId = Shard.userId(); // New random ID for the attempt
         String password = "AnotherPassword@456";
 
         // Create signup payload using the existing email
@@ -93,7 +79,7 @@ public class UserTests extends BaseTest {
 
         // Assertions for existing email signup (negative)
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(400) // Expect 400 Conflict if email already registered
             .body("detail", containsString("Email already registered")); // Adjust message if different
         logger.info("testUserSignup_ExistingEmail_Negative PASSED.");
@@ -103,7 +89,7 @@ public class UserTests extends BaseTest {
     public void testUserSignup_MissingEmail_Negative() {
         logger.info("Executing testUserSignup_MissingEmail_Negative.");
 
-        Integer randomId = ThreadLocalRandom.current().nextInt(1000, 100000);
+        Integer randomId = Shard.userId();
         String password = "AnotherPassword@456";
 
         // Create signup payload with null email
@@ -114,7 +100,7 @@ public class UserTests extends BaseTest {
 
         // Assertions for missing email
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(500) // FastAPI default for validation errors
             .body(equalTo("Internal Server Error"));
         logger.info("testUserSignup_MissingEmail_Negative PASSED.");
@@ -124,8 +110,8 @@ public class UserTests extends BaseTest {
     public void testUserSignup_MissingPassword_Negative() {
         logger.info("Executing testUserSignup_MissingPassword_Negative.");
 
-        Integer randomId = ThreadLocalRandom.current().nextInt(1000, 100000);
-        String uniqueEmail = "no_pass_" + UUID.randomUUID().toString().substring(0, 8) + "@example.com";
+        Integer randomId = Shard.userId();
+        String uniqueEmail = Shard.uniqueEmail("no_pass");
 
         // Create signup payload with null password
         UserSignup user = new UserSignup(randomId, uniqueEmail, null);
@@ -135,7 +121,7 @@ public class UserTests extends BaseTest {
 
         // Assertions for missing password
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(500) // FastAPI default for validation errors
             .body(equalTo("Internal Server Error"));
         logger.info("testUserSignup_MissingPassword_Negative PASSED.");
@@ -145,7 +131,7 @@ public class UserTests extends BaseTest {
     public void testUserSignup_InvalidEmailFormat_Negative() {
         logger.info("Executing testUserSignup_InvalidEmailFormat_Negative.");
 
-        Integer randomId = ThreadLocalRandom.current().nextInt(1000, 100000);
+        Integer randomId = Shard.userId();
         String invalidEmail = "invalid-email"; // Invalid format
         String password = "ValidPassword@123";
 
@@ -157,7 +143,7 @@ public class UserTests extends BaseTest {
 
         // Assertions for invalid email format
         response.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(500) // FastAPI default for validation errors
             .body(equalTo("Internal Server Error")); // Adjust based on actual API response
         logger.info("testUserSignup_InvalidEmailFormat_Negative PASSED.");
@@ -165,18 +151,15 @@ public class UserTests extends BaseTest {
 
     // --- POST /login Test Cases ---
 
-    @Test(description = "Positive: Verify POST /login logs in the previously signed up user (Chained)", priority = 6, dependsOnMethods = {"testUserSignup_Positive"})
+    @Test(description = "Positive: Verify POST /login logs in a freshly signed up user (Chained)", priority = 6)
     public void testUserLogin_Positive_Chained() {
-        logger.info("Executing testUserLogin_Positive_Chained: Logging in previously signed-up user.");
+        logger.info("Executing testUserLogin_Positive_Chained: Signing up a user and logging it in.");
 
-        // Skip test if prerequisite signup details are not available
-        if (signedUpUserId == null || signedUpUserEmail == null || signedUpUserPassword == null) {
-            logger.error("Skipping testUserLogin_Positive_Chained: Signup details not available.");
-            throw new SkipException("Signup details not available for chained login.");
-        }
+        // Chain signup -> login within the test so it does not rely on another test's user
+        UserSignup signedUpUser = signupFixtureUser();
 
-        // Create UserLogin payload using the details from the successful signup test
-        UserLogin loginPayload = new UserLogin(signedUpUserId, signedUpUserEmail, signedUpUserPassword);
+        // Create UserLogin payload using the details from the successful signup
+        UserLogin loginPayload = new UserLogin(signedUpUser.getId(), signedUpUser.getEmail(), signedUpUser.getPassword());
         logger.info("Attempting to log in user: ID: " + loginPayload.getId() + ", Email: " + loginPayload.getEmail());
 
         // Call the login API via AuthService
@@ -184,14 +167,14 @@ public class UserTests extends BaseTest {
 
         // Assertions for positive login
         loginResponse.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(200) // Expect 200 OK for successful login
             .body("access_token", notNullValue()) // Assert that an access token is returned
             .body("token_type", equalTo("bearer")); // Assert token type
 
-        // Store the obtained token for potential future chained requests (e.g., BookTests)
+        // Extract the obtained token from the response
         AuthToken tokenObject = loginResponse.as(AuthToken.class);
-        authTokenFromLogin = tokenObject.getAccessToken();
+        String authTokenFromLogin = tokenObject.getAccessToken();
 
         logger.info("User login successful. Access Token: " + authTokenFromLogin.substring(0, Math.min(authTokenFromLogin.length(), 10)) + "...");
         logger.info("testUserLogin_Positive_Chained PASSED.");
@@ -201,21 +184,37 @@ public class UserTests extends BaseTest {
     public void testUserLogin_InvalidCredentials_Negative() {
         logger.info("Executing testUserLogin_InvalidCredentials_Negative.");
 
-        // Integer randomId = ThreadLocalRandom.current().nextInt(1000, 100000); // Random ID for the invalid attempt
-        String invalidEmail = "invalid_login_" + UUID.randomUUID().toString().substring(0, 8) + "@example.com";
-        // String wrongPassword = "WrongPassword123!";
+        Integer randomId = Shard.userId(); // Random ID for the invalid attempt
+        String invalidEmail = Shard.uniqueEmail("invalid_login");
+        String wrongPassword = "WrongPassword123!";
 
-        // Create login payload with invalid credentials
-        UserLogin loginPayload = new UserLogin(signedUpUserId, invalidEmail, signedUpUserPassword);
+        // Create login payload with invalid credentials (an email that was never signed up)
+        UserLogin loginPayload = new UserLogin(randomId, invalidEmail, wrongPassword);
 
         // Call the login API via AuthService
         Response loginResponse = authService.loginUser(requestSpec, loginPayload);
 
         // Assertions for invalid credentials
         loginResponse.then()
-            .log().all()
+            .log().ifValidationFails()
             .statusCode(400) // Expect 401 Unauthorized
             .body("detail", containsString("Incorrect email or password")); // Adjust message if different
         logger.info("testUserLogin_InvalidCredentials_Negative PASSED.");
     }
-}
\ No newline at end of file
+
+    // --- Fixtures ---
+
+    // Signs up a new user owned by the calling test method and returns the signup details
+    private UserSignup signupFixtureUser() {
+        Integer randomId = Shard.userId();
+        String uniqueEmail = Shard.uniqueEmail("user");
+        UserSignup user = new UserSignup(randomId, uniqueEmail, "UserPassword@123");
+
+        authService.signupUser(requestSpec, user)
+            .then()
+            .log().ifValidationFails()
+            .statusCode(200);
+        logger.info("Fixture user signed up: " + uniqueEmail);
+        return user;
+    }
+}
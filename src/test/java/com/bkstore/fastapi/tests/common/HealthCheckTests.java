@@ -1,6 +1,8 @@
 package com.bkstore.fastapi.tests.common;
 
+import com.bkstore.fastapi.api.endpoints.Endpoint;
 import com.bkstore.fastapi.api.endpoints.Routes;
+import com.bkstore.fastapi.api.resilience.RetryPolicy;
 import com.bkstore.fastapi.common.BaseTest;
 import io.restassured.response.Response;
 import org.testng.Assert;
@@ -12,10 +14,11 @@ public class HealthCheckTests extends BaseTest {
 
     @Test(description = "Verify API health check endpoint is reachable and returns 200 OK")
     public void testApiHealthCheck() {
-        Response response = given()
+        // Retried after connection failures and 502/503/504, e.g. while the API is still starting
+        Response response = RetryPolicy.getInstance().execute(Endpoint.HEALTH.label(), () -> given()
                                 .spec(requestSpec)
                             .when()
-                                .get(Routes.GET_HEALTH);
+                                .get(Routes.GET_HEALTH));
 
         response.then()
                 .statusCode(200)
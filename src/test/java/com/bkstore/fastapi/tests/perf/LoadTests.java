@@ -0,0 +1,115 @@
+package com.bkstore.fastapi.tests.perf;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.common.BaseTest;
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import com.bkstore.fastapi.perf.LoadGenerator;
+import com.bkstore.fastapi.perf.LoadScenario;
+import com.bkstore.fastapi.perf.RouteLatency;
+import com.bkstore.fastapi.utilities.ConfigReader;
+import com.bkstore.fastapi.utilities.TestConfig;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.HdrHistogram.Histogram;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+
+// Drives the bookstore API at a fixed request rate per route (see load.* in config-<env>.properties).
+// Run with: mvn test -DsuiteXmlFile=src/test/resources/testsuites/load_suite.xml
+public class LoadTests extends BaseTest {
+
+    private static final Logger logger = LogManager.getLogger(LoadTests.class);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private LoadScenario scenario;
+    private Map<Endpoint, Double> targetRps;
+    private Duration duration;
+
+    @BeforeClass
+    public void prepareLoad() {
+        // Request/response logging is deliberately left off: at load rates it costs more than the requests themselves
+        RequestSpecification loadSpec = new RequestSpecBuilder()
+                .setBaseUri(ConfigReader.getProperty("base.uri"))
+                .setConfig(HttpConnectionPool.getInstance().restAssuredConfig()
+                        .objectMapperConfig(PayloadCodec.objectMapperConfig()))
+                .setContentType(ContentType.JSON)
+                .build();
+
+        targetRps = TestConfig.get().getTargetRps();
+        duration = Duration.ofSeconds(ConfigReader.getIntProperty("load.duration.seconds", 60));
+
+        // One prepared book per planned DELETE, plus a little headroom
+        int deletableBooks = (int) Math.ceil(targetRps.get(Endpoint.DELETE_BOOK) * duration.getSeconds()) + 1;
+        scenario = new LoadScenario(loadSpec);
+        scenario.prepare(ConfigReader.getIntProperty("load.seed.books", 50), deletableBooks);
+    }
+
+    @Test(description = "Drive every route at its target rate and verify the error rate stays within budget", groups = {"load"})
+    public void testOpenModelLoad() throws InterruptedException {
+        int maxConcurrency = TestConfig.get().getLoadMaxConcurrency();
+        double maxErrorRate = ConfigReader.getDoubleProperty("load.max.error.rate", 0.01);
+
+        Map<Endpoint, RouteLatency> results = new LoadGenerator(scenario, targetRps, duration, maxConcurrency).run();
+
+        File resultDir = new File("target" + File.separator + "load-results");
+        resultDir.mkdirs();
+        StringBuilder failures = new StringBuilder();
+        for (Map.Entry<Endpoint, RouteLatency> entry : results.entrySet()) {
+            Endpoint endpoint = entry.getKey();
+            Histogram responseTime = entry.getValue().responseTimeSnapshot();
+            Histogram serviceTime = entry.getValue().serviceTimeSnapshot();
+            long count = responseTime.getTotalCount();
+            long errors = entry.getValue().getErrorCount();
+            double achievedRps = count / (double) duration.getSeconds();
+
+            logger.info(String.format("%-22s target=%.1f rps achieved=%.1f rps count=%d errors=%d | response p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms | service p50=%.2fms p99=%.2fms",
+                    endpoint.label(), targetRps.get(endpoint), achievedRps, count, errors,
+                    millis(responseTime, 50), millis(responseTime, 90), millis(responseTime, 99), millis(responseTime, 99.9),
+                    responseTime.getMaxValue() / NANOS_PER_MILLI,
+                    millis(serviceTime, 50), millis(serviceTime, 99)));
+            writePercentileDistribution(new File(resultDir, endpoint.configKey() + ".hgrm"), responseTime);
+
+            double errorRate = count == 0 ? 1.0 : errors / (double) count;
+            if (errorRate > maxErrorRate) {
+                failures.append(endpoint.label()).append(" error rate ").append(String.format("%.2f%%", errorRate * 100)).append("; ");
+            }
+        }
+        logger.info("Load percentile distributions written to: " + resultDir.getAbsolutePath());
+
+        Assert.assertTrue(failures.length() == 0, "Routes exceeded load.max.error.rate=" + maxErrorRate + ": " + failures);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void cleanupLoad() {
+        if (scenario != null) {
+            scenario.cleanup();
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    // HdrHistogram's .hgrm format can be plotted with the standard HdrHistogram plotter
+    private static void writePercentileDistribution(File file, Histogram histogram) {
+        try (PrintStream out = new PrintStream(file)) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        } catch (FileNotFoundException e) {
+            logger.warn("Could not write percentile distribution to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bkstore.fastapi.tests.perf;
+
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.bkstore.fastapi.common.BaseTest;
+import com.bkstore.fastapi.common.HttpConnectionPool;
+import com.bkstore.fastapi.perf.SoakMonitor;
+import com.bkstore.fastapi.perf.SoakRunner;
+import com.bkstore.fastapi.utilities.ConfigReader;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+
+// Endurance run of the CRUD and signup/login flows (see soak.* in config-<env>.properties). Run with:
+//   mvn test -DsuiteXmlFile=src/test/resources/testsuites/soak_suite.xml -Dsoak.duration.seconds=14400
+public class SoakTests extends BaseTest {
+
+    private static final Logger logger = LogManager.getLogger(SoakTests.class);
+
+    private SoakMonitor monitor;
+    private SoakRunner runner;
+
+    @BeforeClass
+    public void prepareSoak() {
+        // Same lean spec as LoadTests: logging, timing and recording filters would keep growing over hours
+        RequestSpecification soakSpec = new RequestSpecBuilder()
+                .setBaseUri(ConfigReader.getProperty("base.uri"))
+                .setConfig(HttpConnectionPool.getInstance().restAssuredConfig()
+                        .objectMapperConfig(PayloadCodec.objectMapperConfig()))
+                .setContentType(ContentType.JSON)
+                .build();
+
+        String timestamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
+        File results = new File("target" + File.separator + "soak-results", "soak-" + timestamp + ".jsonl");
+        monitor = new SoakMonitor(results,
+                ConfigReader.getIntProperty("soak.warmup.snapshots", 3),
+                ConfigReader.getIntProperty("soak.baseline.snapshots", 10),
+                ConfigReader.getDoubleProperty("soak.drift.alpha", 0.001),
+                ConfigReader.getDoubleProperty("soak.drift.min.effect", 0.64),
+                ConfigReader.getDoubleProperty("soak.drift.min.error.rate.increase", 0.01),
+                ConfigReader.getDoubleProperty("soak.heap.max.growth.mb.per.hour", 20),
+                ConfigReader.getDoubleProperty("soak.heap.min.growth.mb", 32));
+        runner = new SoakRunner(soakSpec, monitor);
+        runner.prepare();
+    }
+
+    @Test(description = "Cycle the CRUD and signup/login flows at a steady rate and verify latency, errors, heap and connections do not drift", groups = {"soak"})
+    public void testSteadyStateWithoutDrift() throws InterruptedException {
+        try {
+            runner.run(Duration.ofSeconds(ConfigReader.getIntProperty("soak.duration.seconds", 14400)),
+                    ConfigReader.getDoubleProperty("soak.rate.crud", 2),
+                    ConfigReader.getDoubleProperty("soak.rate.user", 0.5),
+                    ConfigReader.getIntProperty("soak.max.concurrency", 16),
+                    Duration.ofSeconds(ConfigReader.getIntProperty("soak.snapshot.seconds", 60)));
+        } finally {
+            monitor.close();
+        }
+        logger.info("Soak snapshots written to: " + monitor.getFile().getAbsolutePath());
+
+        Map<String, String> drifts = monitor.getDrifts();
+        if (drifts.isEmpty()) {
+            logger.info("No drift detected during the soak run.");
+            return;
+        }
+        String report = String.join("\n  ", drifts.values());
+        if ("fail".equalsIgnoreCase(ConfigReader.getProperty("soak.drift.mode", "fail"))) {
+            Assert.fail("Soak run drifted:\n  " + report);
+        }
+        logger.warn("Soak run drifted (soak.drift.mode=warn):\n  " + report);
+    }
+}
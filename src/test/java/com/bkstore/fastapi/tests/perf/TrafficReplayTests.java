@@ -0,0 +1,96 @@
+package com.bkstore.fastapi.tests.perf;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import com.bkstore.fastapi.api.filters.TrafficRecorderFilter;
+import com.bkstore.fastapi.api.payloads.Book;
+import com.bkstore.fastapi.api.payloads.UserLogin;
+import com.bkstore.fastapi.api.payloads.UserSignup;
+import com.bkstore.fastapi.api.services.AsyncApiClient;
+import com.bkstore.fastapi.api.services.AuthService;
+import com.bkstore.fastapi.api.services.BookService;
+import com.bkstore.fastapi.common.BaseTest;
+import com.bkstore.fastapi.perf.RouteLatency;
+import com.bkstore.fastapi.perf.TrafficLog;
+import com.bkstore.fastapi.perf.TrafficRecord;
+import com.bkstore.fastapi.perf.TrafficReplayer;
+import com.bkstore.fastapi.sharding.Shard;
+import com.bkstore.fastapi.utilities.ConfigReader;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Records a small user + book CRUD session and replays it, checking that credentials are redacted and that ids and
+// tokens are remapped
+public class TrafficReplayTests extends BaseTest {
+
+    private static final Logger logger = LogManager.getLogger(TrafficReplayTests.class);
+
+    private final AuthService authService = new AuthService();
+    private final BookService bookService = new BookService();
+
+    @Test(description = "Verify a recorded session replays at maximum speed with the same status codes")
+    public void testRecordAndReplay_Positive() throws Exception {
+        File recording = new File("target" + File.separator + "traffic", "replay-test-" + UUID.randomUUID().toString().substring(0, 8) + ".bin");
+        TrafficRecorderFilter recorder = new TrafficRecorderFilter(recording, ConfigReader.getProperty("base.uri"), 65536);
+        RequestSpecification recordingSpec = new RequestSpecBuilder()
+                .addRequestSpecification(requestSpec)
+                .addFilter(recorder)
+                .build();
+
+        // Record: signup, login, create, get, update, delete and a GET that must now return 404
+        String email = Shard.uniqueEmail("replay");
+        int userId = Shard.userId();
+        authService.signupUser(recordingSpec, new UserSignup(userId, email, "ReplayPassword123!")).then().statusCode(200);
+        String token = authService.loginUser(recordingSpec, new UserLogin(userId, email, "ReplayPassword123!")).then()
+                .statusCode(200).extract().path("access_token");
+        Response created = bookService.createBook(recordingSpec, new Book(Shard.bookName("Replay Book"), email, 2001, "Recorded then replayed"), token);
+        created.then().statusCode(200);
+        int bookId = created.path("id");
+        bookService.getBook(recordingSpec, bookId, token).then().statusCode(200);
+        Book update = new Book(Shard.bookName("Replay Book (updated)"), email, 2002, "Recorded then replayed");
+        update.setId(bookId);
+        bookService.updateBook(recordingSpec, bookId, update, token).then().statusCode(200);
+        bookService.deleteBook(recordingSpec, bookId, token).then().statusCode(200);
+        bookService.getBook(recordingSpec, bookId, token).then().statusCode(404);
+        recorder.close();
+
+        TrafficLog log = TrafficLog.read(recording);
+        List<TrafficRecord> records = log.getRecords();
+        Assert.assertEquals(records.size(), 7, "Recorded exchange count");
+        Assert.assertEquals(records.get(3).getRoute(), Endpoint.GET_BOOK.getPath(), "Route template should be recorded, not the resolved path");
+        Assert.assertEquals(records.get(3).getPathParams().get("id"), String.valueOf(bookId), "Path parameter value");
+        String recorded = new String(Files.readAllBytes(recording.toPath()), StandardCharsets.UTF_8);
+        Assert.assertFalse(recorded.contains("ReplayPassword123!"), "Recording must not contain the password");
+        Assert.assertFalse(recorded.contains(token), "Recording must not contain the access token");
+
+        // Replay: the new user and book get new ids/tokens, so every status only matches if they were remapped
+        Map<Endpoint, RouteLatency> results;
+        try (AsyncApiClient client = new AsyncApiClient(ConfigReader.getProperty("base.uri"), HttpClient.Version.HTTP_1_1,
+                Duration.ofSeconds(10), Duration.ofSeconds(30), 2)) {
+            results = new TrafficReplayer(log, client, Double.POSITIVE_INFINITY, 8).replay();
+        }
+        long replayed = 0;
+        for (Map.Entry<Endpoint, RouteLatency> entry : results.entrySet()) {
+            replayed += entry.getValue().serviceTimeSnapshot().getTotalCount();
+            Assert.assertEquals(entry.getValue().getErrorCount(), 0, "Status mismatches replaying " + entry.getKey().label());
+        }
+        Assert.assertEquals(replayed, 7, "Replayed request count");
+        recording.delete();
+        logger.info("testRecordAndReplay_Positive PASSED.");
+    }
+}
@@ -0,0 +1,82 @@
+package com.bkstore.fastapi.utilities;
+
+import com.bkstore.fastapi.api.payloads.Book;
+
+import java.util.SplittableRandom;
+
+// Generates realistic Book payloads deterministically: book(i) always returns the same book for the same seed,
+// on any thread and in any order, so a catalog of a million books can be generated in parallel slices and
+// regenerated later to verify what the server returns. Each book gets its own SplittableRandom derived from
+// (seed, index) - no shared or synchronized state - so generation runs at millions of books per second,
+// unlike UUID.randomUUID() which funnels every thread through one SecureRandom.
+public class BookDataFactory {
+
+    private static final String[] TITLE_OPENINGS = {"The", "A", "Beyond the", "Return of the", "Under the", "Letters from the",
+            "Songs of the", "The Last", "The Hidden", "Notes on the", "Tales of the", "Shadow of the"};
+    private static final String[] TITLE_ADJECTIVES = {"Silent", "Crimson", "Forgotten", "Golden", "Northern", "Broken", "Endless",
+            "Quiet", "Distant", "Burning", "Hollow", "Wandering", "Electric", "Salt", "Iron", "Paper"};
+    private static final String[] TITLE_NOUNS = {"River", "Garden", "Empire", "Harbor", "Orchard", "Archive", "Kingdom", "Lantern",
+            "Mountain", "Library", "Frontier", "Machine", "Winter", "Island", "Compass", "Cathedral", "Meridian", "Tide"};
+    private static final String[] FIRST_NAMES = {"Amelia", "Rohan", "Chen", "Sofia", "Kwame", "Ingrid", "Mateo", "Aisha", "Hiroshi",
+            "Elena", "Tomasz", "Priya", "Liam", "Nadia", "Oluwaseun", "Margaret", "Diego", "Yuki", "Farah", "Henrik"};
+    private static final String[] LAST_NAMES = {"Okafor", "Lindqvist", "Menon", "Alvarez", "Nakamura", "Kowalski", "Haddad", "Fischer",
+            "O'Brien", "Rossi", "Achebe", "Sato", "Dubois", "Petrov", "Gupta", "Moreau", "Castillo", "Novak", "Iqbal", "Whitfield"};
+    private static final String[] GENRES = {"novel", "memoir", "history", "collection of essays", "thriller", "fantasy epic",
+            "field guide", "biography", "family saga", "mystery"};
+    private static final String[] SUMMARY_SUBJECTS = {"a cartographer", "two estranged sisters", "a retired detective", "a young engineer",
+            "the last lighthouse keeper", "an exiled poet", "a small fishing town", "a travelling orchestra", "a disgraced scientist"};
+    private static final String[] SUMMARY_ACTIONS = {"uncovers a secret buried for a century", "tries to rebuild what the war destroyed",
+            "follows a map that should not exist", "confronts the choices of a lifetime", "races to finish before the winter closes the pass",
+            "learns what it costs to keep a promise", "searches for a missing brother"};
+    private static final String[] SUMMARY_CLOSINGS = {"A moving story about memory and belonging.", "Told with wit and quiet precision.",
+            "Based on years of archival research.", "A page-turner with an unforgettable ending.", "Includes maps, notes and a reading guide.", ""};
+
+    private static final int NEWEST_YEAR = 2025;
+    private static final int YEAR_SPAN = 175;
+
+    private final long seed;
+    private final String namePrefix;
+
+    public BookDataFactory(long seed) {
+        this(seed, "");
+    }
+
+    // namePrefix is prepended to every name, e.g. a run id so the books of one run can be told apart
+    public BookDataFactory(long seed, String namePrefix) {
+        this.seed = seed;
+        this.namePrefix = namePrefix;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // The book at the given position of this factory's sequence (without id, ready for POST /books/)
+    public Book book(long index) {
+        SplittableRandom random = new SplittableRandom(mix(seed * 0x9E3779B97F4A7C15L + index));
+
+        StringBuilder name = new StringBuilder(64).append(namePrefix)
+                .append(pick(random, TITLE_OPENINGS)).append(' ')
+                .append(pick(random, TITLE_ADJECTIVES)).append(' ')
+                .append(pick(random, TITLE_NOUNS))
+                .append(" #").append(index); // Keeps names unique within a sequence
+        String author = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        // Skewed towards recent years like a real catalog: most books are from the last few decades
+        double u = random.nextDouble();
+        int publishedYear = NEWEST_YEAR - (int) (YEAR_SPAN * u * u * u);
+        String summary = "A " + pick(random, GENRES) + " in which " + pick(random, SUMMARY_SUBJECTS) + " "
+                + pick(random, SUMMARY_ACTIONS) + ". " + pick(random, SUMMARY_CLOSINGS);
+        return new Book(name.toString(), author, publishedYear, summary.trim());
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // SplitMix64 finalizer: neighbouring indexes get unrelated random streams
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -3,44 +3,35 @@ package com.bkstore.fastapi.utilities;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Properties;
-
+// String-keyed access to the active TestConfig snapshot. System properties override the config file,
+// e.g. -Dhttp.log.mode=all; typed performance settings are read from TestConfig.get() directly.
 public class ConfigReader {
-    private static Properties properties;
 
     private static final Logger logger = LogManager.getLogger(ConfigReader.class);
 
-    // Static block to load properties once
-    static {
-        loadProperties(EnvironmentManager.getEnvironment());
-    }
-
+    // Switches to another environment's configuration
     public static void loadProperties(String environment) {
-        properties = new Properties();
-        String configFileName = "config-" + environment + ".properties";
-        String configFilePath = "src/test/resources/configs/" + configFileName;
-
-        try (FileInputStream fis = new FileInputStream(configFilePath)) {
-            properties.load(fis);
-            logger.info("Loaded properties from: " + configFilePath); // For debugging
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Error loading " + configFileName + ": " + e.getMessage());
-        }
+        TestConfig.use(TestConfig.load(environment));
     }
 
     public static String getProperty(String key) {
-        String value = properties.getProperty(key);
-        if (value == null) {
-            // Optionally, try to read from system properties if not found in file
-            value = System.getProperty(key);
-        }
+        String value = TestConfig.get().getString(key);
         if (value == null) {
-            // System.err.println("Warning: Property '" + key + "' not found in current environment config.");
             logger.error("Warning: Property '" + key + "' not found in current environment config.");
         }
         return value;
     }
-}
\ No newline at end of file
+
+    // Returns the property value, or the supplied default when the key is not configured (no warning logged)
+    public static String getProperty(String key, String defaultValue) {
+        return TestConfig.get().getString(key, defaultValue);
+    }
+
+    public static int getIntProperty(String key, int defaultValue) {
+        return TestConfig.get().getInt(key, defaultValue);
+    }
+
+    public static double getDoubleProperty(String key, double defaultValue) {
+        return TestConfig.get().getDouble(key, defaultValue);
+    }
+}
@@ -0,0 +1,95 @@
+package com.bkstore.fastapi.utilities;
+
+import com.bkstore.fastapi.api.payloads.PayloadCodec;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Reads a JSON array one element at a time with Jackson's streaming parser, so only the current element is held
+// in memory however large the array is. Unlike jsonPath()/GPath or Response.as(), the body is never loaded as a whole.
+public final class JsonStreams {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private JsonStreams() {
+    }
+
+    // Elements of the top-level JSON array in the input, bound to type. The stream is sequential and can be consumed
+    // once; close it (try-with-resources) to release the input, which also happens by itself at the end of the array.
+    public static <T> Stream<T> arrayElements(InputStream input, Class<T> type) {
+        JsonParser parser;
+        try {
+            parser = jsonFactory.createParser(input);
+            JsonToken first = parser.nextToken();
+            if (first != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new IllegalStateException("Expected a JSON array but the body starts with " + first);
+            }
+        } catch (IOException e) {
+            closeQuietly(input);
+            throw new UncheckedIOException("Could not start reading the JSON array", e);
+        }
+        ArrayElementSpliterator<T> spliterator = new ArrayElementSpliterator<>(parser, PayloadCodec.reader(type));
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    private static void closeQuietly(InputStream input) {
+        try {
+            input.close();
+        } catch (IOException ignored) {
+            // Already failing, the original error is the one worth reporting
+        }
+    }
+
+    private static final class ArrayElementSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final JsonParser parser;
+        private final ObjectReader reader;
+
+        private ArrayElementSpliterator(JsonParser parser, ObjectReader reader) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.parser = parser;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (parser.isClosed()) {
+                return false;
+            }
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    close();
+                    return false;
+                }
+                if (token == null) {
+                    throw new IOException("JSON array ended without a closing bracket");
+                }
+                action.accept(reader.readValue(parser));
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read JSON array element at " + parser.currentLocation(), e);
+            }
+        }
+
+        // Closing the parser closes the input as well; for an HTTP body that hands the connection back to the pool
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close the JSON array input", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.bkstore.fastapi.utilities;
+
+import com.bkstore.fastapi.api.endpoints.Endpoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+// Immutable snapshot of one environment's configuration, built once and shared by every thread.
+// Values come from configs/config-<env>.properties on the classpath (or the file named by -Dconfig.file), and any
+// system property with the same key wins, so every knob can be tuned per run: mvn test -Dhttp.pool.max.total=100
+// The performance settings (timeouts, retries, pool sizes, thread counts, target rates, latency budgets) are parsed and
+// checked when the snapshot is built, so a typo fails the run at startup instead of halfway through a suite.
+public final class TestConfig {
+
+    private static final Logger logger = LogManager.getLogger(TestConfig.class);
+
+    private static final String[] PERCENTILE_KEYS = {"p50", "p90", "p95", "p99"};
+
+    private static volatile TestConfig current;
+
+    private final String environment;
+    private final String source;
+    private final Map<String, String> values;
+
+    private final Duration responseTimeout;
+    private final HttpPool httpPool;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Retry retry;
+    private final CircuitBreaker circuitBreaker;
+    private final Readiness readiness;
+    private final int testThreadCount;
+    private final int shardIndex;
+    private final int shardCount;
+    private final double durationSmoothing;
+    private final int asyncClientThreads;
+    private final int loadMaxConcurrency;
+    private final Map<Endpoint, Double> targetRps;
+    private final Map<Endpoint, LatencyBudget> latencyBudgets;
+
+    private TestConfig(String environment, String source, Map<String, String> values) {
+        this.environment = environment;
+        this.source = source;
+        this.values = values;
+
+        List<String> problems = new ArrayList<>();
+        String baseUri = getString("base.uri");
+        if (baseUri == null) {
+            problems.add("base.uri is not set");
+        } else {
+            try {
+                URI.create(baseUri);
+            } catch (IllegalArgumentException e) {
+                problems.add("base.uri is not a valid URI: " + baseUri);
+            }
+        }
+        responseTimeout = Duration.ofSeconds(positive(problems, "default.timeout", 30));
+        httpPool = new HttpPool(positive(problems, "http.pool.max.total", 50), positive(problems, "http.pool.max.per.route", 20),
+                Duration.ofSeconds(positive(problems, "http.pool.keepalive.seconds", 30)),
+                Duration.ofSeconds(positive(problems, "http.pool.idle.evict.seconds", 30)));
+        if (httpPool.getMaxPerRoute() > httpPool.getMaxTotal()) {
+            problems.add("http.pool.max.per.route (" + httpPool.getMaxPerRoute() + ") exceeds http.pool.max.total (" + httpPool.getMaxTotal() + ")");
+        }
+        connectTimeout = Duration.ofMillis(positive(problems, "http.connect.timeout.ms", 5000));
+        readTimeout = Duration.ofMillis(positive(problems, "http.read.timeout.ms", 30000));
+        retry = new Retry(positive(problems, "http.retry.max.attempts", 3),
+                Duration.ofMillis(positive(problems, "http.retry.backoff.base.ms", 200)),
+                Duration.ofMillis(positive(problems, "http.retry.backoff.max.ms", 2000)));
+        if (retry.getMaxBackoff().compareTo(retry.getBaseBackoff()) < 0) {
+            problems.add("http.retry.backoff.max.ms (" + retry.getMaxBackoff().toMillis() + ") is below http.retry.backoff.base.ms ("
+                    + retry.getBaseBackoff().toMillis() + ")");
+        }
+        circuitBreaker = new CircuitBreaker(positive(problems, "http.circuit.failure.threshold", 5),
+                Duration.ofSeconds(positive(problems, "http.circuit.open.seconds", 30)));
+        readiness = new Readiness(positive(problems, "readiness.stable.successes", 3),
+                Duration.ofMillis(positive(problems, "readiness.backoff.initial.ms", 250)),
+                Duration.ofMillis(positive(problems, "readiness.backoff.max.ms", 5000)),
+                Duration.ofSeconds(positive(problems, "readiness.timeout.seconds", 120)),
+                atLeast(problems, "warmup.rounds", 5, 0));
+        if (readiness.getMaxBackoff().compareTo(readiness.getInitialBackoff()) < 0) {
+            problems.add("readiness.backoff.max.ms (" + readiness.getMaxBackoff().toMillis() + ") is below readiness.backoff.initial.ms ("
+                    + readiness.getInitialBackoff().toMillis() + ")");
+        }
+        testThreadCount = atLeast(problems, "test.thread.count", 0, 0);
+        shardCount = positive(problems, "test.shard.count", 1);
+        shardIndex = atLeast(problems, "test.shard.index", 0, 0);
+        if (shardIndex >= shardCount) {
+            problems.add("test.shard.index (" + shardIndex + ") must be below test.shard.count (" + shardCount + ")");
+        }
+        durationSmoothing = nonNegative(problems, "test.durations.smoothing", 0.5);
+        if (durationSmoothing == 0 || durationSmoothing > 1) {
+            problems.add("test.durations.smoothing must be above 0 and at most 1: " + durationSmoothing);
+        }
+        asyncClientThreads = positive(problems, "async.client.threads", 4);
+        loadMaxConcurrency = positive(problems, "load.max.concurrency", 64);
+
+        Map<Endpoint, Double> rps = new EnumMap<>(Endpoint.class);
+        Map<Endpoint, LatencyBudget> budgets = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            rps.put(endpoint, nonNegative(problems, "load.rps." + endpoint.configKey(), 0));
+            budgets.put(endpoint, latencyBudget(problems, endpoint));
+        }
+        targetRps = Collections.unmodifiableMap(rps);
+        latencyBudgets = Collections.unmodifiableMap(budgets);
+
+        if (!problems.isEmpty()) {
+            throw new RuntimeException("Invalid configuration in " + source + ":\n  " + String.join("\n  ", problems));
+        }
+    }
+
+    // The snapshot for the active environment (EnvironmentManager), loaded on first use
+    public static TestConfig get() {
+        TestConfig config = current;
+        if (config == null) {
+            synchronized (TestConfig.class) {
+                if (current == null) {
+                    current = load(EnvironmentManager.getEnvironment());
+                }
+                config = current;
+            }
+        }
+        return config;
+    }
+
+    // Makes config the snapshot returned by get(), e.g. after switching environments
+    public static synchronized void use(TestConfig config) {
+        current = config;
+    }
+
+    // Reads and validates the configuration of an environment; system properties set at this moment override the file
+    public static TestConfig load(String environment) {
+        Properties file = new Properties();
+        String explicitFile = System.getProperty("config.file");
+        String source = explicitFile != null ? explicitFile : "classpath:configs/config-" + environment + ".properties";
+        try (InputStream in = explicitFile != null ? new FileInputStream(explicitFile)
+                : TestConfig.class.getClassLoader().getResourceAsStream("configs/config-" + environment + ".properties")) {
+            if (in == null) {
+                throw new RuntimeException("Error loading config-" + environment + ".properties: not found on the classpath");
+            }
+            file.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading " + source + ": " + e.getMessage(), e);
+        }
+
+        Map<String, String> values = new TreeMap<>();
+        for (String key : file.stringPropertyNames()) {
+            values.put(key, file.getProperty(key).trim());
+        }
+        int overridden = 0;
+        Properties system = System.getProperties();
+        for (String key : system.stringPropertyNames()) {
+            String value = system.getProperty(key).trim();
+            String previous = values.put(key, value);
+            if (previous != null && !previous.equals(value)) {
+                overridden++;
+            }
+        }
+        TestConfig config = new TestConfig(environment, source, Collections.unmodifiableMap(values));
+        logger.info("Loaded configuration from " + source + " (" + file.size() + " keys, " + overridden + " overridden by system properties)");
+        return config;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Raw value, or null when the key is not configured
+    public String getString(String key) {
+        return values.get(key);
+    }
+
+    // Value, or the default when the key is missing or blank
+    public String getString(String key, String defaultValue) {
+        String value = values.get(key);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Property '" + key + "' is not a valid integer: " + value);
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Property '" + key + "' is not a valid integer: " + value);
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Property '" + key + "' is not a valid number: " + value);
+        }
+    }
+
+    // Only "true" and "false" (any case) are accepted, so a typo is reported instead of silently meaning false
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new RuntimeException("Property '" + key + "' is not true or false: " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    public <E extends Enum<E>> E getEnum(String key, Class<E> type, E defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Property '" + key + "' has unsupported value " + value + " (expected one of "
+                    + Arrays.toString(type.getEnumConstants()).toLowerCase() + ")");
+        }
+    }
+
+    // Every key starting with prefix, with the prefix removed, in key order
+    public Map<String, String> withPrefix(String prefix) {
+        Map<String, String> matching = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                matching.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        return matching;
+    }
+
+    // --- performance settings ---
+
+    // default.timeout: hard limit for any response checked with the shared responseSpec
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public HttpPool getHttpPool() {
+        return httpPool;
+    }
+
+    // http.connect.timeout.ms: connecting, and waiting for a free pooled connection
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    // http.read.timeout.ms: longest wait for response data on an open connection
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Readiness getReadiness() {
+        return readiness;
+    }
+
+    // test.thread.count: TestNG thread count override, 0 keeps the suite XML's value
+    public int getTestThreadCount() {
+        return testThreadCount;
+    }
+
+    // test.shard.index / test.shard.count: which slice of the suite this JVM runs, see TestSchedulingInterceptor
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // test.durations.smoothing: weight of the latest run in the moving average of test durations, see TestDurationHistory
+    public double getDurationSmoothing() {
+        return durationSmoothing;
+    }
+
+    public int getAsyncClientThreads() {
+        return asyncClientThreads;
+    }
+
+    public int getLoadMaxConcurrency() {
+        return loadMaxConcurrency;
+    }
+
+    // load.rps.<route>: open-model target rate, 0 disables the route
+    public Map<Endpoint, Double> getTargetRps() {
+        return targetRps;
+    }
+
+    public LatencyBudget getLatencyBudget(Endpoint endpoint) {
+        return latencyBudgets.get(endpoint);
+    }
+
+    private int positive(List<String> problems, String key, int defaultValue) {
+        return atLeast(problems, key, defaultValue, 1);
+    }
+
+    private int atLeast(List<String> problems, String key, int defaultValue, int minimum) {
+        try {
+            int value = getInt(key, defaultValue);
+            if (value < minimum) {
+                problems.add(key + " must be at least " + minimum + ": " + value);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            problems.add(e.getMessage());
+            return defaultValue;
+        }
+    }
+
+    private double nonNegative(List<String> problems, String key, double defaultValue) {
+        try {
+            double value = getDouble(key, defaultValue);
+            if (value < 0 || Double.isNaN(value)) {
+                problems.add(key + " must not be negative: " + value);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            problems.add(e.getMessage());
+            return defaultValue;
+        }
+    }
+
+    // latency.budget.<route>.*.ms, falling back to latency.budget.default.*.ms; percentiles must not decrease
+    private LatencyBudget latencyBudget(List<String> problems, Endpoint endpoint) {
+        double maxMillis = budgetMillis(problems, endpoint, "max");
+        Map<Double, Double> percentileMillis = new LinkedHashMap<>();
+        double previous = 0;
+        for (String percentileKey : PERCENTILE_KEYS) {
+            double limit = budgetMillis(problems, endpoint, percentileKey);
+            if (limit > 0) {
+                if (limit < previous) {
+                    problems.add("latency budget " + percentileKey + " of " + endpoint.configKey() + " (" + limit + "ms) is below a lower percentile (" + previous + "ms)");
+                }
+                if (maxMillis > 0 && limit > maxMillis) {
+                    problems.add("latency budget " + percentileKey + " of " + endpoint.configKey() + " (" + limit + "ms) exceeds its max (" + maxMillis + "ms)");
+                }
+                percentileMillis.put(Double.parseDouble(percentileKey.substring(1)), limit);
+                previous = limit;
+            }
+        }
+        return new LatencyBudget(maxMillis, Collections.unmodifiableMap(percentileMillis));
+    }
+
+    private double budgetMillis(List<String> problems, Endpoint endpoint, String name) {
+        double fallback = nonNegative(problems, "latency.budget.default." + name + ".ms", 0);
+        return nonNegative(problems, "latency.budget." + endpoint.configKey() + "." + name + ".ms", fallback);
+    }
+
+    // http.pool.*: limits of the shared keep-alive connection pool
+    public static final class HttpPool {
+
+        private final int maxTotal;
+        private final int maxPerRoute;
+        private final Duration keepAlive;
+        private final Duration idleEviction;
+
+        private HttpPool(int maxTotal, int maxPerRoute, Duration keepAlive, Duration idleEviction) {
+            this.maxTotal = maxTotal;
+            this.maxPerRoute = maxPerRoute;
+            this.keepAlive = keepAlive;
+            this.idleEviction = idleEviction;
+        }
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public int getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public Duration getIdleEviction() {
+            return idleEviction;
+        }
+    }
+
+    // http.retry.*: attempts (including the first) and backoff bounds for retried idempotent calls
+    public static final class Retry {
+
+        private final int maxAttempts;
+        private final Duration baseBackoff;
+        private final Duration maxBackoff;
+
+        private Retry(int maxAttempts, Duration baseBackoff, Duration maxBackoff) {
+            this.maxAttempts = maxAttempts;
+            this.baseBackoff = baseBackoff;
+            this.maxBackoff = maxBackoff;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public Duration getBaseBackoff() {
+            return baseBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+    }
+
+    // http.circuit.*: consecutive connection failures that open the circuit, and how long it stays open
+    public static final class CircuitBreaker {
+
+        private final int failureThreshold;
+        private final Duration openDuration;
+
+        private CircuitBreaker(int failureThreshold, Duration openDuration) {
+            this.failureThreshold = failureThreshold;
+            this.openDuration = openDuration;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+    }
+
+    // readiness.* / warmup.rounds: when the API counts as ready, and how many warm-up rounds run before the suite
+    public static final class Readiness {
+
+        private final int stableSuccesses;
+        private final Duration initialBackoff;
+        private final Duration maxBackoff;
+        private final Duration timeout;
+        private final int warmUpRounds;
+
+        private Readiness(int stableSuccesses, Duration initialBackoff, Duration maxBackoff, Duration timeout, int warmUpRounds) {
+            this.stableSuccesses = stableSuccesses;
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            this.timeout = timeout;
+            this.warmUpRounds = warmUpRounds;
+        }
+
+        public int getStableSuccesses() {
+            return stableSuccesses;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public int getWarmUpRounds() {
+            return warmUpRounds;
+        }
+    }
+
+    // Latency limits of one route in milliseconds; 0 / no entry means no limit
+    public static final class LatencyBudget {
+
+        private final double maxMillis;
+        private final Map<Double, Double> percentileMillis;
+
+        private LatencyBudget(double maxMillis, Map<Double, Double> percentileMillis) {
+            this.maxMillis = maxMillis;
+            this.percentileMillis = percentileMillis;
+        }
+
+        // Limit for every single call
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        // Percentile (50, 90, 95, 99) -> limit over the suite or each test, ascending
+        public Map<Double, Double> getPercentileMillis() {
+            return percentileMillis;
+        }
+    }
+}